@@ -0,0 +1,188 @@
+package com.hydrospark.billing.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hydrospark.billing.model.RateComponent;
+import com.hydrospark.billing.model.RatePlan;
+import com.hydrospark.billing.model.RatePlanVersion;
+import com.hydrospark.billing.repository.RateComponentRepository;
+import com.hydrospark.billing.repository.RatePlanRepository;
+import com.hydrospark.billing.repository.RatePlanVersionRepository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Throughput of RateEngineService.calculateCharges for representative plans.
+ * Repositories are stubbed, so no database is needed. Run with {@code mvn -Pjmh verify};
+ * allocation rate is reported by the gc profiler enabled in the jmh profile.
+ *
+ * <ul>
+ *   <li>{@code compiledPlan} - pure pricing of an already compiled plan</li>
+ *   <li>{@code engineCached} - full service path with the result cache enabled</li>
+ *   <li>{@code engineUncached} - full service path, every call evaluated</li>
+ *   <li>{@code lookupAndCompile} - component lookup and JSON parsing on every call</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateEngineBenchmark {
+
+    public enum PlanShape { TIERED, TIERED_SEASONAL_SURCHARGES, MANY_TIERS }
+
+    @Param({"TIERED", "TIERED_SEASONAL_SURCHARGES", "MANY_TIERS"})
+    public PlanShape shape;
+
+    private static final LocalDate SUMMER = LocalDate.of(2025, 7, 31);
+
+    private RatePlan plan;
+    private CompiledRatePlan compiled;
+    private RateEngineService cachedEngine;
+    private RateEngineService uncachedEngine;
+    private BigDecimal[] usages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        plan = RatePlan.builder()
+                .id("plan-" + shape.name())
+                .name(shape.name())
+                .customerTypeScope(RatePlan.CustomerTypeScope.RESIDENTIAL)
+                .effectiveStartDate(LocalDate.of(2024, 1, 1))
+                .status(RatePlan.Status.ACTIVE)
+                .build();
+
+        List<RateComponent> components = components(shape);
+
+        RateComponentRepository componentRepository = mock(RateComponentRepository.class, withSettings().stubOnly());
+        when(componentRepository.findByRatePlanIdAndIsActiveTrueOrderBySortOrderAsc(anyString()))
+                .thenReturn(components);
+
+        RatePlanVersion version = RatePlanVersion.builder()
+                .id("version-" + shape.name())
+                .ratePlanId(plan.getId())
+                .versionNumber(1)
+                .planName(plan.getName())
+                .componentsJson(snapshotJson(components, objectMapper))
+                .build();
+        RatePlanVersionRepository versionRepository = mock(RatePlanVersionRepository.class, withSettings().stubOnly());
+        when(versionRepository.findById(anyString())).thenReturn(Optional.of(version));
+        RatePlanVersionRepository.VersionId versionId = version::getId;
+        when(versionRepository.findFirstByRatePlanIdOrderByVersionNumberDesc(anyString()))
+                .thenReturn(Optional.of(versionId));
+
+        RatePlanVersionService versionService = new RatePlanVersionService(versionRepository, componentRepository,
+                mock(RatePlanRepository.class, withSettings().stubOnly()),
+                mock(PlatformTransactionManager.class, withSettings().stubOnly()));
+        ChargeTracer tracer = new ChargeTracer(0, 0);
+
+        cachedEngine = new RateEngineService(componentRepository,
+                new ChargeCalculationCache(true, 50_000), tracer, versionService);
+        uncachedEngine = new RateEngineService(componentRepository,
+                new ChargeCalculationCache(false, 1), tracer, versionService);
+        compiled = cachedEngine.compile(plan);
+
+        // Residential-like spread of daily-summed monthly usage at 0.01 CCF granularity
+        usages = new BigDecimal[4096];
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < usages.length; i++) {
+            double ccf = Math.max(0, 12 + random.nextGaussian() * 6);
+            usages[i] = BigDecimal.valueOf(Math.round(ccf * 100), 2);
+        }
+    }
+
+    private BigDecimal nextUsage() {
+        return usages[next++ & (usages.length - 1)];
+    }
+
+    @Benchmark
+    public void compiledPlan(Blackhole bh) {
+        bh.consume(compiled.calculate(nextUsage(), SUMMER));
+    }
+
+    @Benchmark
+    public void engineCached(Blackhole bh) {
+        bh.consume(cachedEngine.calculateCharges(nextUsage(), plan, SUMMER));
+    }
+
+    @Benchmark
+    public void engineUncached(Blackhole bh) {
+        bh.consume(uncachedEngine.calculateCharges(nextUsage(), plan, SUMMER));
+    }
+
+    @Benchmark
+    public void lookupAndCompile(Blackhole bh) {
+        bh.consume(uncachedEngine.compile(plan).calculate(nextUsage(), SUMMER));
+    }
+
+    private static List<RateComponent> components(PlanShape shape) {
+        List<RateComponent> components = new ArrayList<>();
+        switch (shape) {
+            case TIERED -> components.add(component(RateComponent.ComponentType.TIERED_USAGE, "Usage",
+                    "{\"tiers\":[{\"up_to\":10,\"rate_per_ccf\":3.5},{\"up_to\":25,\"rate_per_ccf\":4.25},"
+                            + "{\"up_to\":null,\"rate_per_ccf\":5.75}]}", 1));
+            case TIERED_SEASONAL_SURCHARGES -> {
+                components.add(component(RateComponent.ComponentType.FIXED_FEE, "Base charge",
+                        "{\"amount\":12.50}", 1));
+                components.add(component(RateComponent.ComponentType.TIERED_USAGE, "Usage",
+                        "{\"tiers\":[{\"up_to\":10,\"rate_per_ccf\":3.5},{\"up_to\":25,\"rate_per_ccf\":4.25},"
+                                + "{\"up_to\":null,\"rate_per_ccf\":5.75}]}", 2));
+                components.add(component(RateComponent.ComponentType.SEASONAL_MULTIPLIER, "Summer peak",
+                        "{\"applies_months\":[6,7,8],\"multiplier\":1.15}", 3));
+                components.add(component(RateComponent.ComponentType.SURCHARGE_PERCENT, "Infrastructure",
+                        "{\"percent\":0.05}", 4));
+                components.add(component(RateComponent.ComponentType.SURCHARGE_FLAT, "Stormwater",
+                        "{\"amount\":3.00}", 5));
+            }
+            case MANY_TIERS -> {
+                StringBuilder tiers = new StringBuilder("{\"tiers\":[");
+                for (int i = 1; i <= 20; i++) {
+                    tiers.append("{\"up_to\":").append(i * 2).append(",\"rate_per_ccf\":")
+                            .append(2.0 + i * 0.15).append("},");
+                }
+                tiers.append("{\"up_to\":null,\"rate_per_ccf\":6.5}]}");
+                components.add(component(RateComponent.ComponentType.TIERED_USAGE, "Usage", tiers.toString(), 1));
+            }
+        }
+        return components;
+    }
+
+    private static RateComponent component(RateComponent.ComponentType type, String name, String json, int order) {
+        return RateComponent.builder()
+                .id(name)
+                .ratePlanId("plan")
+                .componentType(type)
+                .name(name)
+                .configJson(json)
+                .sortOrder(order)
+                .isActive(true)
+                .build();
+    }
+
+    private static String snapshotJson(List<RateComponent> components, ObjectMapper objectMapper) {
+        try {
+            return objectMapper.writeValueAsString(components.stream()
+                    .map(c -> new RatePlanVersionService.ComponentSnapshot(c.getComponentType().name(),
+                            c.getName(), c.getConfigJson(), c.getSortOrder()))
+                    .toList());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
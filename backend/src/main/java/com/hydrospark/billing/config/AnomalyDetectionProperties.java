@@ -0,0 +1,64 @@
+package com.hydrospark.billing.config;
+
+import com.hydrospark.billing.model.AnomalyEvent;
+import com.hydrospark.billing.model.Customer;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Anomaly detection rules and thresholds (app.anomaly-detection.*). The top-level values apply to
+ * every meter; app.anomaly-detection.customer-types.&lt;TYPE&gt;.* overrides any of them for one
+ * customer type, e.g. customer-types.COMMERCIAL.spike-threshold=4.0.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.anomaly-detection")
+@Data
+public class AnomalyDetectionProperties {
+
+    /** Event types that are detected at all */
+    private Set<AnomalyEvent.EventType> rules = EnumSet.of(
+            AnomalyEvent.EventType.SPIKE,
+            AnomalyEvent.EventType.SUSTAINED_HIGH,
+            AnomalyEvent.EventType.ZERO_USAGE,
+            AnomalyEvent.EventType.DATA_GAP);
+
+    /** Standard deviations above normal for a spike */
+    private double spikeThreshold = 3.0;
+
+    /** A spike must also be at least this multiple of normal usage */
+    private double spikeMinRatio = 1.5;
+
+    private int sustainedHighDays = 3;
+
+    private double sustainedHighMultiplier = 2.0;
+
+    private int zeroUsageDays = 7;
+
+    private int dataGapDays = 3;
+
+    /** Readings a meter needs before it is evaluated */
+    private int minHistoryDays = 30;
+
+    private Map<Customer.CustomerType, Overrides> customerTypes = new EnumMap<>(Customer.CustomerType.class);
+
+    /**
+     * Per customer type values; anything left unset falls back to the top-level value
+     */
+    @Data
+    public static class Overrides {
+        private Set<AnomalyEvent.EventType> rules;
+        private Double spikeThreshold;
+        private Double spikeMinRatio;
+        private Integer sustainedHighDays;
+        private Double sustainedHighMultiplier;
+        private Integer zeroUsageDays;
+        private Integer dataGapDays;
+        private Integer minHistoryDays;
+    }
+}
@@ -1,5 +1,6 @@
 package com.hydrospark.billing.config;
 
+import com.hydrospark.billing.controller.AnomalyController;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
@@ -25,6 +26,9 @@ public class CorsConfig {
         // Allow all methods (GET, POST, PUT, DELETE, OPTIONS)
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         
+        // Paging headers the frontend reads
+        config.setExposedHeaders(List.of(AnomalyController.HAS_NEXT_HEADER, AnomalyController.NEXT_CURSOR_HEADER));
+        
         // Allow credentials (needed for some auth setups)
         config.setAllowCredentials(true);
         
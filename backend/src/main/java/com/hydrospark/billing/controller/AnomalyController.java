@@ -5,44 +5,93 @@ import com.hydrospark.billing.model.AnomalyEvent;
 import com.hydrospark.billing.model.Meter;
 import com.hydrospark.billing.repository.AnomalyEventRepository;
 import com.hydrospark.billing.repository.MeterRepository;
+import com.hydrospark.billing.service.AnomalyBackfillService;
 import com.hydrospark.billing.service.AnomalyDetectionService;
+import com.hydrospark.billing.service.AnomalyRuleEngine;
+import com.hydrospark.billing.service.AnomalyRules;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.Map;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
 @RestController
 @RequestMapping("/api/anomalies")
 @RequiredArgsConstructor
 public class AnomalyController {
 
+    // Keyset paging headers of the list endpoint, exposed to the frontend by CorsConfig
+    public static final String HAS_NEXT_HEADER = "X-Has-Next";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final AnomalyEventRepository anomalyEventRepository;
     private final MeterRepository meterRepository;
     private final AnomalyDetectionService anomalyDetectionService;
+    private final AnomalyRuleEngine anomalyRuleEngine;
+    private final AnomalyBackfillService anomalyBackfillService;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+    // Sorts after any real event date, so the first page starts at the newest event
+    private static final LocalDate FIRST_PAGE_DATE = LocalDate.of(9999, 12, 31);
 
+    /**
+     * List anomalies newest first, one keyset page at a time.
+     * The body stays a plain array; X-Has-Next says whether more exist and X-Next-Cursor is the
+     * value to pass as cursor for the following page.
+     */
     @GetMapping
     public ResponseEntity<List<AnomalyEventDTO>> list(
             @RequestParam(required = false) String status,
-            @RequestParam(required = false) String severity
+            @RequestParam(required = false) String severity,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size
     ) {
-        Stream<AnomalyEvent> stream = anomalyEventRepository.findAll().stream();
-
-        if (status != null && !status.isBlank()) {
-            stream = stream.filter(a -> a.getStatus() != null && a.getStatus().name().equalsIgnoreCase(status));
+        AnomalyEvent.Status statusFilter;
+        AnomalyEvent.Severity severityFilter;
+        try {
+            statusFilter = status == null || status.isBlank() ? null : AnomalyEvent.Status.valueOf(status.toUpperCase());
+            severityFilter = severity == null || severity.isBlank() ? null : AnomalyEvent.Severity.valueOf(severity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            // Unknown filter values match nothing
+            return ResponseEntity.ok().header(HAS_NEXT_HEADER, "false").body(List.of());
         }
-        if (severity != null && !severity.isBlank()) {
-            stream = stream.filter(a -> a.getSeverity() != null && a.getSeverity().name().equalsIgnoreCase(severity));
+
+        LocalDate afterDate = FIRST_PAGE_DATE;
+        String afterId = "";
+        if (cursor != null && !cursor.isBlank()) {
+            int sep = cursor.indexOf('_');
+            if (sep < 0) {
+                throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor: " + cursor);
+            }
+            try {
+                afterDate = LocalDate.parse(cursor.substring(0, sep));
+            } catch (DateTimeParseException e) {
+                throw new ResponseStatusException(BAD_REQUEST, "Invalid cursor: " + cursor);
+            }
+            afterId = cursor.substring(sep + 1);
         }
 
-        List<AnomalyEventDTO> out = stream
-                .sorted(Comparator.comparing(AnomalyEvent::getEventDate).reversed())
-                .map(AnomalyController::toDto)
-                .toList();
+        Slice<AnomalyEvent> page = anomalyEventRepository.findPageAfter(statusFilter, severityFilter,
+                afterDate, afterId, PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
 
-        return ResponseEntity.ok(out);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HAS_NEXT_HEADER, String.valueOf(page.hasNext()));
+        if (page.hasNext()) {
+            AnomalyEvent last = page.getContent().get(page.getNumberOfElements() - 1);
+            response.header(NEXT_CURSOR_HEADER, last.getEventDate() + "_" + last.getId());
+        }
+        return response.body(page.getContent().stream().map(AnomalyController::toDto).toList());
     }
 
     @GetMapping("/{anomalyId}")
@@ -70,6 +119,14 @@ public class AnomalyController {
         return ResponseEntity.ok(out);
     }
 
+    /**
+     * Effective detection rules: the defaults and the compiled set for each customer type
+     */
+    @GetMapping("/rules")
+    public ResponseEntity<Map<String, AnomalyRules>> rules() {
+        return ResponseEntity.ok(anomalyRuleEngine.describe());
+    }
+
     /**
      * Run anomaly detection now.
      * - If meterId provided: runs detection for that single meter
@@ -89,6 +146,23 @@ public class AnomalyController {
         return ResponseEntity.ok(detected);
     }
 
+    /**
+     * Replay detection over a historical range for all active meters, or only meterIds if given.
+     * Findings are stored under runName; running the same request again replaces them.
+     */
+    @PostMapping("/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<AnomalyBackfillService.BackfillResult> backfill(@RequestBody BackfillRequest request) {
+        return ResponseEntity.ok(anomalyBackfillService.backfill(
+                request.runName(), request.startDate(), request.endDate(), request.meterIds()));
+    }
+
+    @GetMapping("/backfill/{runName}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> backfillSummary(@PathVariable String runName) {
+        return ResponseEntity.ok(anomalyBackfillService.summary(runName));
+    }
+
     @PostMapping("/{anomalyId}/resolve")
     public ResponseEntity<?> resolve(
             @PathVariable String anomalyId,
@@ -109,6 +183,8 @@ public class AnomalyController {
         return ResponseEntity.ok().build();
     }
 
+    public record BackfillRequest(String runName, LocalDate startDate, LocalDate endDate, List<String> meterIds) {}
+
     private static AnomalyEventDTO toDto(AnomalyEvent a) {
         AnomalyEventDTO dto = new AnomalyEventDTO();
         dto.setId(a.getId());
@@ -151,6 +151,7 @@ public class BillController {
                 .customerId(bill.getCustomerId())
                 .meterId(bill.getMeterId())
                 .billingPeriodId(bill.getBillingPeriodId())
+                .ratePlanVersionId(bill.getRatePlanVersionId())
                 .issueDate(bill.getIssueDate())
                 .dueDate(bill.getDueDate())
                 .status(bill.getStatus() != null ? bill.getStatus().name() : null)
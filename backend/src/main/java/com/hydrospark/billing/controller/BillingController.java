@@ -3,6 +3,7 @@ package com.hydrospark.billing.controller;
 import com.hydrospark.billing.model.Bill;
 import com.hydrospark.billing.model.BillingPeriod;
 import com.hydrospark.billing.service.BillingPeriodService;
+import com.hydrospark.billing.service.RateEngineService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -103,6 +104,15 @@ public class BillingController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * Re-price a bill with the rate plan version it was originally billed with
+     */
+    @GetMapping("/bills/{billId}/reprice")
+    @PreAuthorize("hasAnyRole('ADMIN', 'BILLING')")
+    public ResponseEntity<RateEngineService.ChargeBreakdown> repriceBill(@PathVariable String billId) {
+        return ResponseEntity.ok(billingPeriodService.repriceBill(billId));
+    }
+
     /**
      * Request record for generating a billing period
      */
@@ -1,9 +1,13 @@
 package com.hydrospark.billing.controller;
 
 import com.hydrospark.billing.model.UsageForecast;
+import com.hydrospark.billing.service.BillProjectionService;
+import com.hydrospark.billing.service.ForecastBatchService;
+import com.hydrospark.billing.service.ForecastCache;
 import com.hydrospark.billing.service.ForecastService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -12,20 +16,45 @@ import org.springframework.web.bind.annotation.*;
 public class ForecastController {
 
     private final ForecastService forecastService;
+    private final ForecastBatchService forecastBatchService;
+    private final ForecastCache forecastCache;
+    private final BillProjectionService billProjectionService;
 
     /**
      * Generate a new forecast for a customer (creates and persists a new UsageForecast).
      */
     @PostMapping("/{customerId}/generate")
     public ResponseEntity<UsageForecast> generate(@PathVariable String customerId) {
-        return ResponseEntity.ok(forecastService.generateForecast(customerId));
+        UsageForecast forecast = forecastService.generateForecast(customerId);
+        forecastCache.put(forecast);
+        return ResponseEntity.ok(forecast);
     }
 
     /**
-     * Get the latest forecast for a customer, if one exists.
+     * Regenerate next month's forecasts for every customer with active meters in a billing cycle (same as
+     * the nightly job).
+     */
+    @PostMapping("/cycle/{cycleNumber}/generate")
+    @PreAuthorize("hasAnyRole('ADMIN', 'BILLING')")
+    public ResponseEntity<ForecastBatchService.CycleForecastResult> generateCycle(@PathVariable int cycleNumber) {
+        return ResponseEntity.ok(forecastBatchService.generateCycleForecasts(cycleNumber));
+    }
+
+    /**
+     * Get the latest forecast for a customer, if one exists. Served from the forecast cache; a forecast
+     * made stale by new readings is returned once more while it is regenerated.
      */
     @GetMapping("/{customerId}/latest")
     public ResponseEntity<UsageForecast> latest(@PathVariable String customerId) {
-        return ResponseEntity.ok(forecastService.getLatestForecast(customerId));
+        return ResponseEntity.ok(forecastCache.get(customerId));
+    }
+
+    /**
+     * Projected bill for the current period: usage and charges so far plus an estimate for the
+     * remaining days. Nothing is persisted.
+     */
+    @GetMapping("/{customerId}/bill-to-date")
+    public ResponseEntity<BillProjectionService.BillProjection> billToDate(@PathVariable String customerId) {
+        return ResponseEntity.ok(billProjectionService.project(customerId));
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,26 @@
 package com.hydrospark.billing.controller;
 
 import com.hydrospark.billing.dto.MeterReadingDTO;
-import com.hydrospark.billing.model.Meter;
+import com.hydrospark.billing.dto.UsagePointDTO;
+import com.hydrospark.billing.model.MeterLastReading;
 import com.hydrospark.billing.model.MeterReading;
+import com.hydrospark.billing.repository.MeterLastReadingRepository;
 import com.hydrospark.billing.repository.MeterReadingRepository;
-import com.hydrospark.billing.repository.MeterRepository;
+import com.hydrospark.billing.service.CustomerUsageService;
+import com.hydrospark.billing.service.LastReadingService;
+import com.hydrospark.billing.service.MeterReadingIngestService;
+import com.hydrospark.billing.service.MonthlyUsageService;
+import com.hydrospark.billing.service.ReadingExportService;
+import com.hydrospark.billing.service.UsageBaselineService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -23,7 +35,12 @@ import java.util.stream.Collectors;
 public class MeterReadingController {
 
     private final MeterReadingRepository meterReadingRepository;
-    private final MeterRepository meterRepository;
+    private final MeterReadingIngestService meterReadingIngestService;
+    private final UsageBaselineService usageBaselineService;
+    private final CustomerUsageService customerUsageService;
+    private final LastReadingService lastReadingService;
+    private final ReadingExportService readingExportService;
+    private final MonthlyUsageService monthlyUsageService;
 
     /**
      * Get readings for a specific meter within a date range
@@ -34,14 +51,7 @@ public class MeterReadingController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
 
-        List<MeterReading> readings = meterReadingRepository
-                .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(meterId, startDate, endDate);
-
-        List<MeterReadingDTO> dtos = readings.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(readingsOf(meterId, startDate, endDate));
     }
 
     /**
@@ -53,22 +63,21 @@ public class MeterReadingController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
 
-        // Get all meters for the customer
-        List<Meter> customerMeters = meterRepository.findByCustomerId(customerId);
-
-        // Get readings for all meters
-        List<MeterReading> allReadings = customerMeters.stream()
-                .flatMap(meter -> meterReadingRepository
-                        .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(
-                                meter.getId(), startDate, endDate)
-                        .stream())
-                .collect(Collectors.toList());
+        // A single query over all of the customer's meters
+        return ResponseEntity.ok(customerUsageService.customerReadings(customerId, startDate, endDate));
+    }
 
-        List<MeterReadingDTO> dtos = allReadings.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    /**
+     * Usage of all of a customer's meters summed per day, week or month, for charts over long ranges
+     */
+    @GetMapping("/customer/{customerId}/usage")
+    public ResponseEntity<List<UsagePointDTO>> getUsageByCustomer(
+            @PathVariable String customerId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "DAILY") CustomerUsageService.Granularity granularity) {
 
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(customerUsageService.customerUsage(customerId, startDate, endDate, granularity));
     }
 
     /**
@@ -76,18 +85,77 @@ public class MeterReadingController {
      */
     @GetMapping("/meter/{meterId}/latest")
     public ResponseEntity<MeterReadingDTO> getLatestReading(@PathVariable String meterId) {
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusDays(90); // Look back 90 days
+        MeterLastReading latest = lastReadingService.latest(meterId);
+        if (latest == null) {
+            return ResponseEntity.notFound().build();
+        }
 
-        List<MeterReading> readings = meterReadingRepository
-                .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(meterId, startDate, endDate);
+        return ResponseEntity.ok(MeterReadingDTO.builder()
+                .id(latest.getReadingId())
+                .meterId(latest.getMeterId())
+                .readingDate(latest.getReadingDate())
+                .usageCcf(latest.getUsageCcf())
+                .source(latest.getSource() != null ? latest.getSource().name() : null)
+                .ingestedAt(latest.getIngestedAt())
+                .build());
+    }
 
-        if (readings.isEmpty()) {
+    /**
+     * Last reading date and ingest time of every meter, never-reporting and longest silent meters first
+     */
+    @GetMapping("/last-seen")
+    @PreAuthorize("hasAnyRole('ADMIN', 'BILLING')")
+    public ResponseEntity<List<MeterLastReadingRepository.LastSeen>> getLastSeen() {
+        return ResponseEntity.ok(lastReadingService.lastSeen());
+    }
+
+    /**
+     * Export readings of a meter, customer, billing cycle or every meter as CSV or NDJSON, optionally
+     * gzip-compressed. Rows are written to the response as they are read, so any range can be exported.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAnyRole('ADMIN', 'BILLING')")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "METER") ReadingExportService.Scope scope,
+            @RequestParam(required = false) String id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "CSV") ReadingExportService.Format format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        ReadingExportService.ExportRequest request;
+        try {
+            request = new ReadingExportService.ExportRequest(scope, id, startDate, endDate, format, gzip);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(request.fileName()).build().toString())
+                .body(out -> readingExportService.export(request, out));
+    }
+
+    /**
+     * Seasonal usage baseline of a meter (monthly levels and weekday factors)
+     */
+    @GetMapping("/meter/{meterId}/baseline")
+    public ResponseEntity<UsageBaselineService.BaselineProfile> getBaseline(@PathVariable String meterId) {
+        UsageBaselineService.BaselineProfile profile = usageBaselineService.profile(meterId);
+        if (profile == null) {
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(profile);
+    }
 
-        MeterReading latest = readings.get(readings.size() - 1);
-        return ResponseEntity.ok(toDTO(latest));
+    /**
+     * Rebuild the meter, customer and billing cycle monthly usage rollups from the stored readings
+     */
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MonthlyUsageService.RebuildResult> rebuildRollups() {
+        return ResponseEntity.ok(monthlyUsageService.rebuildAll());
     }
 
     /**
@@ -95,26 +163,23 @@ public class MeterReadingController {
      */
     @PostMapping
     public ResponseEntity<MeterReadingDTO> recordReading(@RequestBody RecordReadingRequest request) {
-        // Check if reading already exists
-        var existing = meterReadingRepository.findByMeterIdAndReadingDate(
-                request.meterId(), request.readingDate());
-
-        if (existing.isPresent()) {
-            throw new RuntimeException("Reading already exists for this meter and date");
-        }
-
-        MeterReading reading = MeterReading.builder()
-                .meterId(request.meterId())
-                .readingDate(request.readingDate())
-                .usageCcf(request.usageCcf())
-                .source(MeterReading.ReadingSource.MANUAL)
-                .build();
-
-        reading = meterReadingRepository.save(reading);
+        MeterReading reading = meterReadingIngestService.recordReading(
+                request.meterId(), request.readingDate(), request.usageCcf(), MeterReading.ReadingSource.MANUAL);
 
         return ResponseEntity.ok(toDTO(reading));
     }
 
+    /**
+     * Readings of a meter as DTOs
+     */
+    private List<MeterReadingDTO> readingsOf(String meterId, LocalDate startDate, LocalDate endDate) {
+        return meterReadingRepository
+                .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(meterId, startDate, endDate)
+                .stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Convert entity to DTO
      */
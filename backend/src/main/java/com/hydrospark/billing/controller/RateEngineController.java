@@ -3,11 +3,17 @@ package com.hydrospark.billing.controller;
 import com.hydrospark.billing.dto.RatePlanDTO;
 import com.hydrospark.billing.model.RateComponent;
 import com.hydrospark.billing.model.RatePlan;
+import com.hydrospark.billing.model.RatePlanVersion;
 import com.hydrospark.billing.repository.RateComponentRepository;
 import com.hydrospark.billing.repository.RatePlanRepository;
+import com.hydrospark.billing.service.ChargeCalculationCache;
+import com.hydrospark.billing.service.ChargeTracer;
 import com.hydrospark.billing.service.RateEngineService;
+import com.hydrospark.billing.service.RatePlanVersionService;
+import com.hydrospark.billing.service.RateImpactService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -25,6 +31,8 @@ public class RateEngineController {
     private final RateEngineService rateEngineService;
     private final RatePlanRepository ratePlanRepository;
     private final RateComponentRepository rateComponentRepository;
+    private final RateImpactService rateImpactService;
+    private final RatePlanVersionService ratePlanVersionService;
 
     // -----------------------
     // Rate plan CRUD
@@ -53,6 +61,7 @@ public class RateEngineController {
         plan = ratePlanRepository.save(plan);
 
         upsertComponents(plan.getId(), dto.getComponents());
+        ratePlanVersionService.snapshot(plan);
         return ResponseEntity.ok(toDTOWithComponents(plan));
     }
 
@@ -65,6 +74,8 @@ public class RateEngineController {
         plan = ratePlanRepository.save(plan);
 
         upsertComponents(plan.getId(), dto.getComponents());
+        ratePlanVersionService.snapshot(plan);
+        rateEngineService.invalidatePlan(plan.getId());
         return ResponseEntity.ok(toDTOWithComponents(plan));
     }
 
@@ -77,22 +88,54 @@ public class RateEngineController {
         rateComponentRepository.findByRatePlanIdAndIsActiveTrueOrderBySortOrderAsc(planId)
                 .forEach(rc -> rateComponentRepository.deleteById(rc.getId()));
         ratePlanRepository.deleteById(planId);
+        // versions are kept so bills priced with this plan can still be re-priced
+        rateEngineService.invalidatePlan(planId);
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/plans/{planId}/versions")
+    public ResponseEntity<List<RatePlanVersion>> listVersions(@PathVariable String planId) {
+        return ResponseEntity.ok(ratePlanVersionService.listVersions(planId));
+    }
+
     // -----------------------
     // Rate calculation
     // -----------------------
 
     @PostMapping("/calculate")
-    public ResponseEntity<RateEngineService.ChargeBreakdown> calculate(@RequestBody CalculateRequest request) {
+    public ResponseEntity<RateEngineService.ChargeBreakdown> calculate(
+            @RequestBody CalculateRequest request,
+            @RequestParam(value = "trace", defaultValue = "false") boolean trace) {
         RatePlan plan = ratePlanRepository.findById(request.ratePlanId())
                 .orElseThrow(() -> new ResponseStatusException(NOT_FOUND, "Rate plan not found"));
 
         BigDecimal usageCcf = request.usageCcf() == null ? BigDecimal.ZERO : request.usageCcf();
         LocalDate billDate = request.billingDate() == null ? LocalDate.now() : request.billingDate();
 
-        return ResponseEntity.ok(rateEngineService.calculateCharges(usageCcf, plan, billDate));
+        return ResponseEntity.ok(rateEngineService.calculateCharges(usageCcf, plan, billDate, trace));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ChargeCalculationCache.CacheStats> cacheStats() {
+        return ResponseEntity.ok(rateEngineService.getCacheStats());
+    }
+
+    @GetMapping("/trace/stats")
+    public ResponseEntity<ChargeTracer.TraceStats> traceStats() {
+        return ResponseEntity.ok(rateEngineService.getTraceStats());
+    }
+
+    /**
+     * Replay a candidate plan against the last N billed periods of every cycle
+     * and report how customers' bills would change.
+     */
+    @PostMapping("/impact")
+    @PreAuthorize("hasAnyRole('ADMIN', 'BILLING')")
+    public ResponseEntity<RateImpactService.ImpactReport> impact(@RequestBody ImpactRequest request) {
+        if (!ratePlanRepository.existsById(request.ratePlanId())) {
+            throw new ResponseStatusException(NOT_FOUND, "Rate plan not found");
+        }
+        return ResponseEntity.ok(rateImpactService.analyze(request.ratePlanId(), request.periods()));
     }
 
     // -----------------------
@@ -154,4 +197,6 @@ public class RateEngineController {
     }
 
     public record CalculateRequest(String ratePlanId, BigDecimal usageCcf, LocalDate billingDate) {}
+
+    public record ImpactRequest(String ratePlanId, Integer periods) {}
 }
\ No newline at end of file
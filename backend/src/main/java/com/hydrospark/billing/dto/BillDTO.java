@@ -22,6 +22,7 @@ public class BillDTO {
     private String customerId;
     private String meterId;
     private String billingPeriodId;
+    private String ratePlanVersionId;
 
     private LocalDate issueDate;
     private LocalDate dueDate;
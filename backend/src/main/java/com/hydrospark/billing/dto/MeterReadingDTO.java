@@ -17,6 +17,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 public class MeterReadingDTO {
+    /** Null when served from the recent reading store */
     private String id;
 
     private String meterId;
@@ -28,5 +29,6 @@ public class MeterReadingDTO {
     /** String representation of MeterReading.ReadingSource enum. */
     private String source;
 
+    /** Null when served from the recent reading store */
     private LocalDateTime ingestedAt;
 }
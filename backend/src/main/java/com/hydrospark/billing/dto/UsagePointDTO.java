@@ -0,0 +1,30 @@
+package com.hydrospark.billing.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Usage summed over one day, week or month of a downsampled series.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsagePointDTO {
+    /** First day of the bucket (clipped to the requested range) */
+    private LocalDate periodStart;
+
+    /** Last day of the bucket (clipped to the requested range) */
+    private LocalDate periodEnd;
+
+    /** Total usage in CCF over the bucket, across all of the customer's meters */
+    private BigDecimal usageCcf;
+
+    /** Number of meter readings summed */
+    private long readings;
+}
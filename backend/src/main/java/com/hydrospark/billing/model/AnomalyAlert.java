@@ -0,0 +1,69 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for a customer alert about one anomaly. Written in the same transaction as the
+ * anomaly and sent later, coalesced per customer, by AnomalyAlertSender.
+ */
+@Entity
+@Table(name = "anomaly_alert_outbox",
+       indexes = @Index(name = "idx_alert_outbox_due", columnList = "status, next_attempt_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnomalyAlert {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @Column(columnDefinition = "CHAR(36)")
+    private String id;
+
+    @Column(name = "customer_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String customerId;
+
+    @Column(name = "anomaly_event_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String anomalyEventId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    public enum Status {
+        PENDING, SENT, SKIPPED, FAILED
+    }
+}
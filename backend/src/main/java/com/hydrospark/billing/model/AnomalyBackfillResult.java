@@ -0,0 +1,66 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * An anomaly found by replaying detection over historical readings. Kept apart from
+ * anomaly_events so a backfill never raises live events or customer alerts; rows are
+ * grouped by run name so different rule settings can be compared.
+ */
+@Entity
+@Table(name = "anomaly_backfill_results",
+       indexes = @Index(name = "idx_backfill_run_meter_date", columnList = "run_name, meter_id, event_date"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AnomalyBackfillResult {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @Column(columnDefinition = "CHAR(36)")
+    private String id;
+
+    @Column(name = "run_name", nullable = false, length = 100)
+    private String runName;
+
+    @Column(name = "customer_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String customerId;
+
+    @Column(name = "meter_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String meterId;
+
+    @Column(name = "event_date", nullable = false)
+    private LocalDate eventDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false)
+    private AnomalyEvent.EventType eventType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private AnomalyEvent.Severity severity;
+
+    /** Usage on the event date (null for data gaps) */
+    @Column(name = "usage_ccf", precision = 12, scale = 3)
+    private BigDecimal usageCcf;
+
+    /** Normal daily usage the reading was judged against */
+    @Column(name = "expected_ccf", precision = 12, scale = 3)
+    private BigDecimal expectedCcf;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
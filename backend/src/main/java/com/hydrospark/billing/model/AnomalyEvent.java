@@ -8,7 +8,15 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "anomaly_events")
+@Table(name = "anomaly_events",
+       indexes = {
+           @Index(name = "idx_anomaly_dedup", columnList = "meter_id, event_date, event_type, status"),
+           // Keyset listing, newest first, for each filter combination
+           @Index(name = "idx_anomaly_date", columnList = "event_date, id"),
+           @Index(name = "idx_anomaly_status_date", columnList = "status, event_date, id"),
+           @Index(name = "idx_anomaly_severity_date", columnList = "severity, event_date, id"),
+           @Index(name = "idx_anomaly_status_severity_date", columnList = "status, severity, event_date, id")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,6 +33,14 @@ public class Bill {
     @Column(name = "billing_period_id", nullable = false, columnDefinition = "CHAR(36)")
     private String billingPeriodId;
     
+    /** Rate plan version the bill was priced with (null for bills created before versioning). */
+    @Column(name = "rate_plan_version_id", columnDefinition = "CHAR(36)")
+    private String ratePlanVersionId;
+    
+    /** Metered usage the bill was priced on (null for bills created before it was recorded). */
+    @Column(name = "usage_ccf", precision = 12, scale = 2)
+    private BigDecimal usageCcf;
+    
     @Column(name = "issue_date", nullable = false)
     private LocalDate issueDate;
     
@@ -0,0 +1,55 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Usage of all customers of a billing cycle in one calendar month, rolled up as readings are ingested
+ */
+@Entity
+@Table(name = "billing_cycle_monthly_usage")
+@IdClass(BillingCycleMonthlyUsage.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BillingCycleMonthlyUsage {
+
+    @Id
+    @Column(name = "billing_cycle_number")
+    private Integer billingCycleNumber;
+
+    /** First day of the month */
+    @Id
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    @Column(name = "usage_ccf", nullable = false, precision = 18, scale = 2)
+    private BigDecimal usageCcf;
+
+    /** Meter readings summed into the month */
+    @Column(name = "reading_count", nullable = false)
+    private Long readingCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer billingCycleNumber;
+        private LocalDate monthStart;
+    }
+}
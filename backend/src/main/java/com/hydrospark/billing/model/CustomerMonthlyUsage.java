@@ -0,0 +1,55 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Usage of all of a customer's meters in one calendar month, rolled up as readings are ingested
+ */
+@Entity
+@Table(name = "customer_monthly_usage")
+@IdClass(CustomerMonthlyUsage.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerMonthlyUsage {
+
+    @Id
+    @Column(name = "customer_id", columnDefinition = "CHAR(36)")
+    private String customerId;
+
+    /** First day of the month */
+    @Id
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    @Column(name = "usage_ccf", nullable = false, precision = 16, scale = 2)
+    private BigDecimal usageCcf;
+
+    /** Meter readings summed into the month */
+    @Column(name = "reading_count", nullable = false)
+    private Integer readingCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String customerId;
+        private LocalDate monthStart;
+    }
+}
@@ -7,7 +7,8 @@ import org.hibernate.annotations.GenericGenerator;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "meters")
+@Table(name = "meters",
+       indexes = @Index(name = "idx_meter_customer", columnList = "customer_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
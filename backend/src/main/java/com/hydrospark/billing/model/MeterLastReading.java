@@ -0,0 +1,41 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * The most recent reading of each meter, kept current as readings are ingested
+ */
+@Entity
+@Table(name = "meter_last_readings",
+       indexes = @Index(name = "idx_last_reading_date", columnList = "reading_date"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MeterLastReading {
+
+    @Id
+    @Column(name = "meter_id", columnDefinition = "CHAR(36)")
+    private String meterId;
+
+    @Column(name = "reading_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String readingId;
+
+    @Column(name = "reading_date", nullable = false)
+    private LocalDate readingDate;
+
+    @Column(name = "usage_ccf", nullable = false, precision = 10, scale = 2)
+    private BigDecimal usageCcf;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, columnDefinition = "VARCHAR(20)")
+    private MeterReading.ReadingSource source;
+
+    @Column(name = "ingested_at", nullable = false)
+    private LocalDateTime ingestedAt;
+}
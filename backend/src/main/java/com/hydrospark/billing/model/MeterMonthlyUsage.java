@@ -0,0 +1,55 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Usage of one meter in one calendar month, rolled up from meter_readings as readings are ingested
+ */
+@Entity
+@Table(name = "meter_monthly_usage")
+@IdClass(MeterMonthlyUsage.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MeterMonthlyUsage {
+
+    @Id
+    @Column(name = "meter_id", columnDefinition = "CHAR(36)")
+    private String meterId;
+
+    /** First day of the month */
+    @Id
+    @Column(name = "month_start")
+    private LocalDate monthStart;
+
+    @Column(name = "usage_ccf", nullable = false, precision = 14, scale = 2)
+    private BigDecimal usageCcf;
+
+    /** Days of the month that have a reading */
+    @Column(name = "reading_days", nullable = false)
+    private Integer readingDays;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String meterId;
+        private LocalDate monthStart;
+    }
+}
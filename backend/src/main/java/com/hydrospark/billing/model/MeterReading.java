@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "meter_readings", 
-       uniqueConstraints = @UniqueConstraint(columnNames = {"meter_id", "reading_date"}))
+       uniqueConstraints = @UniqueConstraint(columnNames = {"meter_id", "reading_date"}),
+       indexes = @Index(name = "idx_reading_ingested_at", columnList = "ingested_at"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
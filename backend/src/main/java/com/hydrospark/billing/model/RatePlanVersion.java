@@ -0,0 +1,61 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable snapshot of a rate plan and its active components, taken every time the plan is
+ * created or updated. Bills record the version they were priced with so old periods can be
+ * re-priced exactly as they were billed.
+ */
+@Entity
+@Table(name = "rate_plan_versions",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"rate_plan_id", "version_number"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RatePlanVersion {
+
+    @Id
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @Column(columnDefinition = "CHAR(36)")
+    private String id;
+
+    @Column(name = "rate_plan_id", nullable = false, columnDefinition = "CHAR(36)")
+    private String ratePlanId;
+
+    @Column(name = "version_number", nullable = false, updatable = false)
+    private Integer versionNumber;
+
+    @Column(name = "plan_name", nullable = false, updatable = false)
+    private String planName;
+
+    @Column(name = "effective_start_date", updatable = false)
+    private LocalDate effectiveStartDate;
+
+    @Column(name = "effective_end_date", updatable = false)
+    private LocalDate effectiveEndDate;
+
+    /** Active components at snapshot time, as a JSON array in sort order. */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "components_json", nullable = false, updatable = false, columnDefinition = "JSON")
+    private String componentsJson;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.hydrospark.billing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted seasonal usage baseline of one meter (see SeasonalBaseline for the packed layout)
+ */
+@Entity
+@Table(name = "usage_baselines")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UsageBaseline {
+
+    @Id
+    @Column(name = "meter_id", columnDefinition = "CHAR(36)")
+    private String meterId;
+
+    @Column(name = "stats", nullable = false, columnDefinition = "VARBINARY(228)")
+    private byte[] stats;
+
+    /** Last reading date folded into the stats */
+    @Column(name = "through_date")
+    private LocalDate throughDate;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
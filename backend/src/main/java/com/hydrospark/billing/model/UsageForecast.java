@@ -9,7 +9,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "usage_forecasts")
+@Table(name = "usage_forecasts",
+       indexes = {
+           @Index(name = "idx_forecast_customer_period", columnList = "customer_id, target_period_start"),
+           @Index(name = "idx_forecast_cycle_period_meter", columnList = "billing_cycle_number, target_period_start, meter_id")
+       })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -44,7 +48,7 @@ public class UsageForecast {
     private BigDecimal predictedTotalAmount;
     
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "VARCHAR(20)")
     private ForecastMethod method;
     
     @Enumerated(EnumType.STRING)
@@ -65,7 +69,7 @@ public class UsageForecast {
     }
     
     public enum ForecastMethod {
-        SIMPLE_AVG, SEASONAL_AVG, TREND_BASED
+        SIMPLE_AVG, SEASONAL_AVG, TREND_BASED, HOLT_WINTERS
     }
     
     public enum ConfidenceLevel {
@@ -0,0 +1,35 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.AnomalyAlert;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AnomalyAlertRepository extends JpaRepository<AnomalyAlert, String> {
+    
+    /**
+     * Lock the oldest due alerts, skipping rows another instance has locked. Must run in the
+     * transaction that then claims them.
+     */
+    @Query(value = "SELECT id FROM anomaly_alert_outbox " +
+                   "WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+                   "ORDER BY created_at LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<String> lockDueIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    /**
+     * Claim alerts by pushing their next attempt past the time it takes to send them
+     */
+    @Modifying
+    @Query("UPDATE AnomalyAlert a SET a.nextAttemptAt = :claimedUntil WHERE a.id IN :ids")
+    int claim(@Param("ids") List<String> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+    
+    long countByStatus(AnomalyAlert.Status status);
+}
@@ -0,0 +1,52 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.AnomalyBackfillResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AnomalyBackfillResultRepository extends JpaRepository<AnomalyBackfillResult, String> {
+
+    /**
+     * Clear a run's results for a range of meter ids (fromMeterId, toMeterId] and dates, before it is replayed
+     */
+    @Modifying
+    @Query("DELETE FROM AnomalyBackfillResult r " +
+           "WHERE r.runName = :runName " +
+           "AND r.meterId > :fromMeterId AND r.meterId <= :toMeterId " +
+           "AND r.eventDate BETWEEN :startDate AND :endDate")
+    int deleteRunRange(
+        @Param("runName") String runName,
+        @Param("fromMeterId") String fromMeterId,
+        @Param("toMeterId") String toMeterId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+
+    /**
+     * Clear a run's results for the given meters and dates, before they are replayed
+     */
+    @Modifying
+    @Query("DELETE FROM AnomalyBackfillResult r " +
+           "WHERE r.runName = :runName " +
+           "AND r.meterId IN :meterIds " +
+           "AND r.eventDate BETWEEN :startDate AND :endDate")
+    int deleteRunMeters(
+        @Param("runName") String runName,
+        @Param("meterIds") Collection<String> meterIds,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+
+    /**
+     * Number of results of a run per event type, as [eventType, count] rows
+     */
+    @Query("SELECT r.eventType, COUNT(r) FROM AnomalyBackfillResult r " +
+           "WHERE r.runName = :runName GROUP BY r.eventType")
+    List<Object[]> countByEventType(@Param("runName") String runName);
+}
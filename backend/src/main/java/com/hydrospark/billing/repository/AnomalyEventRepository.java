@@ -1,9 +1,15 @@
 package com.hydrospark.billing.repository;
 
 import com.hydrospark.billing.model.AnomalyEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -18,4 +24,31 @@ public interface AnomalyEventRepository extends JpaRepository<AnomalyEvent, Stri
     List<AnomalyEvent> findByStatusAndSeverity(AnomalyEvent.Status status, AnomalyEvent.Severity severity);
     
     List<AnomalyEvent> findByStatusOrderByCreatedAtDesc(AnomalyEvent.Status status);
+    
+    /**
+     * One page of events ordered by (eventDate DESC, id DESC), starting after the given key.
+     * Status and severity are optional; each combination has a matching (filters, event_date, id) index,
+     * so a page costs the same however large the table is. The Slice fetches one extra row for hasNext
+     * instead of counting.
+     */
+    @Query("SELECT a FROM AnomalyEvent a " +
+           "WHERE (:status IS NULL OR a.status = :status) " +
+           "AND (:severity IS NULL OR a.severity = :severity) " +
+           "AND (a.eventDate < :afterDate OR (a.eventDate = :afterDate AND a.id < :afterId)) " +
+           "ORDER BY a.eventDate DESC, a.id DESC")
+    Slice<AnomalyEvent> findPageAfter(
+        @Param("status") AnomalyEvent.Status status,
+        @Param("severity") AnomalyEvent.Severity severity,
+        @Param("afterDate") LocalDate afterDate,
+        @Param("afterId") String afterId,
+        Pageable pageable);
+    
+    /**
+     * Duplicate check, served by idx_anomaly_dedup
+     */
+    boolean existsByMeterIdAndEventDateAndEventTypeAndStatus(
+        String meterId, LocalDate eventDate, AnomalyEvent.EventType eventType, AnomalyEvent.Status status);
+    
+    List<AnomalyEvent> findByMeterIdInAndStatusAndEventDateGreaterThanEqual(
+        Collection<String> meterIds, AnomalyEvent.Status status, LocalDate fromDate);
 }
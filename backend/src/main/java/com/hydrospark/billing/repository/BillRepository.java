@@ -1,14 +1,19 @@
 package com.hydrospark.billing.repository;
 
 import com.hydrospark.billing.model.Bill;
+import com.hydrospark.billing.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BillRepository extends JpaRepository<Bill, String> {
@@ -41,4 +46,38 @@ public interface BillRepository extends JpaRepository<Bill, String> {
         @Param("endDate") LocalDate endDate,
         @Param("status") Bill.Status status
     );
+    
+    /**
+     * Stream each bill of a period with the metered usage it was priced on: the usage recorded on the
+     * bill, or for older bills the readings of every meter the customer owns, whatever its status
+     * today (a meter deactivated since the period only contributes the readings it recorded during it).
+     * Forward-only (MySQL streaming fetch), so callers must consume it inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT b.customerId AS customerId, b.totalAmount AS billedAmount, " +
+           "COALESCE(b.usageCcf, SUM(mr.usageCcf), 0) AS usageCcf " +
+           "FROM Bill b " +
+           "JOIN Customer c ON c.id = b.customerId " +
+           "LEFT JOIN Meter m ON m.customerId = b.customerId " +
+           "LEFT JOIN MeterReading mr ON mr.meterId = m.id " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "WHERE b.billingPeriodId = :periodId " +
+           "AND b.status <> 'VOID' " +
+           "AND c.customerType IN :customerTypes " +
+           "GROUP BY b.id, b.customerId, b.totalAmount, b.usageCcf")
+    Stream<BilledUsage> streamBilledUsageForPeriod(
+        @Param("periodId") String periodId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("customerTypes") List<Customer.CustomerType> customerTypes
+    );
+    
+    /**
+     * Projection of a billed amount and the usage behind it
+     */
+    interface BilledUsage {
+        String getCustomerId();
+        BigDecimal getBilledAmount();
+        BigDecimal getUsageCcf();
+    }
 }
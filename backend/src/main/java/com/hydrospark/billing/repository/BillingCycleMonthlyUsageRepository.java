@@ -0,0 +1,56 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.BillingCycleMonthlyUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BillingCycleMonthlyUsageRepository
+        extends JpaRepository<BillingCycleMonthlyUsage, BillingCycleMonthlyUsage.Key> {
+
+    List<BillingCycleMonthlyUsage> findByBillingCycleNumberAndMonthStartBetweenOrderByMonthStartAsc(
+        Integer billingCycleNumber, LocalDate fromMonth, LocalDate toMonth);
+
+    /**
+     * Add one new daily reading to its cycle's month, creating the month on first use (atomic)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO billing_cycle_monthly_usage (billing_cycle_number, month_start, usage_ccf, reading_count, updated_at) " +
+                   "VALUES (:cycleNumber, :monthStart, :usageCcf, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE usage_ccf = usage_ccf + :usageCcf, " +
+                   "reading_count = reading_count + 1, updated_at = NOW()",
+           nativeQuery = true)
+    int addReading(
+        @Param("cycleNumber") Integer cycleNumber,
+        @Param("monthStart") LocalDate monthStart,
+        @Param("usageCcf") BigDecimal usageCcf);
+
+    /**
+     * Delete every month from the given month start onwards, ahead of {@link #rebuildFrom}
+     */
+    @Modifying
+    @Query("DELETE FROM BillingCycleMonthlyUsage u WHERE u.monthStart >= :fromMonth")
+    int deleteFrom(@Param("fromMonth") LocalDate fromMonth);
+
+    /**
+     * Insert every month from the given month start onwards from customer_monthly_usage, by current cycle
+     */
+    @Modifying
+    @Query(value = "INSERT INTO billing_cycle_monthly_usage (billing_cycle_number, month_start, usage_ccf, reading_count, updated_at) " +
+                   "SELECT agg.billing_cycle_number, agg.month_start, agg.usage_ccf, agg.reading_count, NOW() FROM (" +
+                   "  SELECT c.billing_cycle_number, u.month_start, SUM(u.usage_ccf) AS usage_ccf, SUM(u.reading_count) AS reading_count " +
+                   "  FROM customer_monthly_usage u JOIN customers c ON c.id = u.customer_id " +
+                   "  WHERE u.month_start >= :fromMonth AND c.billing_cycle_number IS NOT NULL " +
+                   "  GROUP BY c.billing_cycle_number, u.month_start" +
+                   ") AS agg " +
+                   "ON DUPLICATE KEY UPDATE usage_ccf = agg.usage_ccf, reading_count = agg.reading_count, updated_at = NOW()",
+           nativeQuery = true)
+    int rebuildFrom(@Param("fromMonth") LocalDate fromMonth);
+}
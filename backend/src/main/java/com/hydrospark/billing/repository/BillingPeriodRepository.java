@@ -17,5 +17,7 @@ public interface BillingPeriodRepository extends JpaRepository<BillingPeriod, St
     
     List<BillingPeriod> findByStatus(BillingPeriod.Status status);
     
+    List<BillingPeriod> findByStatusOrderByPeriodEndDateDesc(BillingPeriod.Status status);
+    
     List<BillingPeriod> findByPeriodStartDateBetween(LocalDate startDate, LocalDate endDate);
 }
@@ -0,0 +1,65 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.CustomerMonthlyUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface CustomerMonthlyUsageRepository extends JpaRepository<CustomerMonthlyUsage, CustomerMonthlyUsage.Key> {
+
+    List<CustomerMonthlyUsage> findByCustomerIdAndMonthStartBetweenOrderByMonthStartAsc(
+        String customerId, LocalDate fromMonth, LocalDate toMonth);
+
+    /**
+     * Add one new daily reading to its customer's month, creating the month on first use (atomic)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO customer_monthly_usage (customer_id, month_start, usage_ccf, reading_count, updated_at) " +
+                   "VALUES (:customerId, :monthStart, :usageCcf, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE usage_ccf = usage_ccf + :usageCcf, " +
+                   "reading_count = reading_count + 1, updated_at = NOW()",
+           nativeQuery = true)
+    int addReading(
+        @Param("customerId") String customerId,
+        @Param("monthStart") LocalDate monthStart,
+        @Param("usageCcf") BigDecimal usageCcf);
+
+    /**
+     * Delete the months from the given month start onwards of the customers with ids in
+     * (fromCustomerId, toCustomerId], ahead of {@link #rebuildRange}
+     */
+    @Modifying
+    @Query("DELETE FROM CustomerMonthlyUsage u " +
+           "WHERE u.customerId > :fromCustomerId AND u.customerId <= :toCustomerId AND u.monthStart >= :fromMonth")
+    int deleteRange(
+        @Param("fromCustomerId") String fromCustomerId,
+        @Param("toCustomerId") String toCustomerId,
+        @Param("fromMonth") LocalDate fromMonth);
+
+    /**
+     * Insert the months from the given month start onwards of the customers with ids in
+     * (fromCustomerId, toCustomerId] from meter_monthly_usage, by current meter owner
+     */
+    @Modifying
+    @Query(value = "INSERT INTO customer_monthly_usage (customer_id, month_start, usage_ccf, reading_count, updated_at) " +
+                   "SELECT agg.customer_id, agg.month_start, agg.usage_ccf, agg.reading_count, NOW() FROM (" +
+                   "  SELECT m.customer_id, u.month_start, SUM(u.usage_ccf) AS usage_ccf, SUM(u.reading_days) AS reading_count " +
+                   "  FROM meters m JOIN meter_monthly_usage u ON u.meter_id = m.id " +
+                   "  WHERE m.customer_id > :fromCustomerId AND m.customer_id <= :toCustomerId " +
+                   "  AND u.month_start >= :fromMonth " +
+                   "  GROUP BY m.customer_id, u.month_start" +
+                   ") AS agg " +
+                   "ON DUPLICATE KEY UPDATE usage_ccf = agg.usage_ccf, reading_count = agg.reading_count, updated_at = NOW()",
+           nativeQuery = true)
+    int rebuildRange(
+        @Param("fromCustomerId") String fromCustomerId,
+        @Param("toCustomerId") String toCustomerId,
+        @Param("fromMonth") LocalDate fromMonth);
+}
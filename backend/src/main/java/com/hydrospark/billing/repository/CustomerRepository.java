@@ -2,6 +2,7 @@ package com.hydrospark.billing.repository;
 
 import com.hydrospark.billing.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +12,10 @@ import java.util.Optional;
 public interface CustomerRepository extends JpaRepository<Customer, String> {
     Optional<Customer> findByEmail(String email);
     List<Customer> findByBillingCycleNumber(Integer cycleNumber);
+    
+    @Query("SELECT DISTINCT c.billingCycleNumber FROM Customer c ORDER BY c.billingCycleNumber")
+    List<Integer> findBillingCycleNumbers();
+    
+    @Query("SELECT c.id FROM Customer c ORDER BY c.id")
+    List<String> findAllIdsOrderById();
 }
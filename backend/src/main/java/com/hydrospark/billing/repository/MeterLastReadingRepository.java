@@ -0,0 +1,94 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.model.Meter;
+import com.hydrospark.billing.model.MeterLastReading;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MeterLastReadingRepository extends JpaRepository<MeterLastReading, String> {
+
+    /**
+     * Record a stored reading as its meter's latest unless the meter already has a later one.
+     * reading_date is assigned last because MySQL applies the assignments in order.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO meter_last_readings (meter_id, reading_id, reading_date, usage_ccf, source, ingested_at) " +
+                   "VALUES (:meterId, :readingId, :readingDate, :usageCcf, :source, :ingestedAt) " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "reading_id = IF(:readingDate >= reading_date, :readingId, reading_id), " +
+                   "usage_ccf = IF(:readingDate >= reading_date, :usageCcf, usage_ccf), " +
+                   "source = IF(:readingDate >= reading_date, :source, source), " +
+                   "ingested_at = IF(:readingDate >= reading_date, :ingestedAt, ingested_at), " +
+                   "reading_date = GREATEST(reading_date, :readingDate)",
+           nativeQuery = true)
+    int recordReading(
+        @Param("meterId") String meterId,
+        @Param("readingId") String readingId,
+        @Param("readingDate") LocalDate readingDate,
+        @Param("usageCcf") BigDecimal usageCcf,
+        @Param("source") String source,
+        @Param("ingestedAt") LocalDateTime ingestedAt);
+
+    /**
+     * Bring every meter with readings since a date up to its latest reading, in one statement
+     */
+    @Modifying
+    @Query(value = "INSERT INTO meter_last_readings (meter_id, reading_id, reading_date, usage_ccf, source, ingested_at) " +
+                   "SELECT mr.meter_id, mr.id, mr.reading_date, mr.usage_ccf, mr.source, mr.ingested_at " +
+                   "FROM meter_readings mr " +
+                   "JOIN (SELECT meter_id, MAX(reading_date) AS reading_date FROM meter_readings " +
+                   "      WHERE reading_date >= :fromDate GROUP BY meter_id) last " +
+                   "  ON last.meter_id = mr.meter_id AND last.reading_date = mr.reading_date " +
+                   "ON DUPLICATE KEY UPDATE " +
+                   "reading_id = IF(mr.reading_date >= meter_last_readings.reading_date, mr.id, meter_last_readings.reading_id), " +
+                   "usage_ccf = IF(mr.reading_date >= meter_last_readings.reading_date, mr.usage_ccf, meter_last_readings.usage_ccf), " +
+                   "source = IF(mr.reading_date >= meter_last_readings.reading_date, mr.source, meter_last_readings.source), " +
+                   "ingested_at = IF(mr.reading_date >= meter_last_readings.reading_date, mr.ingested_at, meter_last_readings.ingested_at), " +
+                   "reading_date = GREATEST(meter_last_readings.reading_date, mr.reading_date)",
+           nativeQuery = true)
+    int rebuildFrom(@Param("fromDate") LocalDate fromDate);
+
+    /**
+     * Active meters whose latest reading is older than a date (meters that never reported are not included)
+     */
+    @Query("SELECT lr.meterId AS meterId, m.customerId AS customerId, c.customerType AS customerType, " +
+           "lr.readingDate AS readingDate " +
+           "FROM MeterLastReading lr JOIN Meter m ON m.id = lr.meterId JOIN Customer c ON c.id = m.customerId " +
+           "WHERE m.status = 'ACTIVE' AND lr.readingDate < :before")
+    List<SilentMeter> findActiveSilentSince(@Param("before") LocalDate before);
+
+    /**
+     * Last reading of every meter, those that never reported and then the longest silent first
+     */
+    @Query("SELECT m.id AS meterId, m.externalLocationId AS externalLocationId, m.customerId AS customerId, " +
+           "m.status AS status, lr.readingDate AS lastReadingDate, lr.ingestedAt AS lastIngestedAt " +
+           "FROM Meter m LEFT JOIN MeterLastReading lr ON lr.meterId = m.id " +
+           "ORDER BY lr.readingDate ASC, m.id ASC")
+    List<LastSeen> findAllLastSeen();
+
+    interface SilentMeter {
+        String getMeterId();
+        String getCustomerId();
+        Customer.CustomerType getCustomerType();
+        LocalDate getReadingDate();
+    }
+
+    interface LastSeen {
+        String getMeterId();
+        String getExternalLocationId();
+        String getCustomerId();
+        Meter.Status getStatus();
+        LocalDate getLastReadingDate();
+        LocalDateTime getLastIngestedAt();
+    }
+}
@@ -0,0 +1,104 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.model.MeterMonthlyUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface MeterMonthlyUsageRepository extends JpaRepository<MeterMonthlyUsage, MeterMonthlyUsage.Key> {
+
+    List<MeterMonthlyUsage> findByMeterIdAndMonthStartBetweenOrderByMonthStartAsc(
+        String meterId, LocalDate fromMonth, LocalDate toMonth);
+
+    /**
+     * Add one new daily reading to its month, creating the month on first use. Atomic, so concurrent
+     * ingests for the same meter and month do not lose updates.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO meter_monthly_usage (meter_id, month_start, usage_ccf, reading_days, updated_at) " +
+                   "VALUES (:meterId, :monthStart, :usageCcf, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE usage_ccf = usage_ccf + :usageCcf, " +
+                   "reading_days = reading_days + 1, updated_at = NOW()",
+           nativeQuery = true)
+    int addReading(
+        @Param("meterId") String meterId,
+        @Param("monthStart") LocalDate monthStart,
+        @Param("usageCcf") BigDecimal usageCcf);
+
+    /**
+     * Delete the months from the given month start onwards of the meters with ids in
+     * (fromMeterId, toMeterId], ahead of {@link #rebuildRange}
+     */
+    @Modifying
+    @Query("DELETE FROM MeterMonthlyUsage u " +
+           "WHERE u.meterId > :fromMeterId AND u.meterId <= :toMeterId AND u.monthStart >= :fromMonth")
+    int deleteRange(
+        @Param("fromMeterId") String fromMeterId,
+        @Param("toMeterId") String toMeterId,
+        @Param("fromMonth") LocalDate fromMonth);
+
+    /**
+     * Insert the months from the given month start onwards of the meters with ids in
+     * (fromMeterId, toMeterId] from meter_readings, read through its (meter_id, reading_date) key
+     */
+    @Modifying
+    @Query(value = "INSERT INTO meter_monthly_usage (meter_id, month_start, usage_ccf, reading_days, updated_at) " +
+                   "SELECT agg.meter_id, agg.month_start, agg.usage_ccf, agg.reading_days, NOW() FROM (" +
+                   "  SELECT meter_id, DATE_SUB(reading_date, INTERVAL DAYOFMONTH(reading_date) - 1 DAY) AS month_start, " +
+                   "         SUM(usage_ccf) AS usage_ccf, COUNT(*) AS reading_days " +
+                   "  FROM meter_readings " +
+                   "  WHERE meter_id > :fromMeterId AND meter_id <= :toMeterId AND reading_date >= :fromMonth " +
+                   "  GROUP BY meter_id, month_start" +
+                   ") AS agg " +
+                   "ON DUPLICATE KEY UPDATE usage_ccf = agg.usage_ccf, reading_days = agg.reading_days, updated_at = NOW()",
+           nativeQuery = true)
+    int rebuildRange(
+        @Param("fromMeterId") String fromMeterId,
+        @Param("toMeterId") String toMeterId,
+        @Param("fromMonth") LocalDate fromMonth);
+
+    /**
+     * Stream monthly usage of the active meters of the billing cycle customers with ids in
+     * (fromCustomerId, toCustomerId], ordered by customer, meter, then month (forward-only). A meter
+     * without months in the range comes back as a single row with null month fields.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT m.id AS meterId, m.customerId AS customerId, c.customerType AS customerType, " +
+           "u.monthStart AS monthStart, u.usageCcf AS usageCcf, u.readingDays AS readingDays " +
+           "FROM Meter m " +
+           "JOIN Customer c ON c.id = m.customerId " +
+           "LEFT JOIN MeterMonthlyUsage u ON u.meterId = m.id " +
+           "AND u.monthStart BETWEEN :fromMonth AND :toMonth " +
+           "WHERE m.status = 'ACTIVE' AND c.billingCycleNumber = :cycleNumber " +
+           "AND m.customerId > :fromCustomerId AND m.customerId <= :toCustomerId " +
+           "ORDER BY m.customerId, m.id, u.monthStart")
+    Stream<CycleMonthlyUsage> streamCycleMonthlyUsage(
+        @Param("cycleNumber") Integer cycleNumber,
+        @Param("fromMonth") LocalDate fromMonth,
+        @Param("toMonth") LocalDate toMonth,
+        @Param("fromCustomerId") String fromCustomerId,
+        @Param("toCustomerId") String toCustomerId);
+
+    /**
+     * Projection of one meter-month with the meter's owner
+     */
+    interface CycleMonthlyUsage {
+        String getMeterId();
+        String getCustomerId();
+        Customer.CustomerType getCustomerType();
+        LocalDate getMonthStart();
+        BigDecimal getUsageCcf();
+        Integer getReadingDays();
+    }
+}
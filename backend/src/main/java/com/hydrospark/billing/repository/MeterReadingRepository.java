@@ -1,15 +1,21 @@
 package com.hydrospark.billing.repository;
 
+import com.hydrospark.billing.model.Customer;
 import com.hydrospark.billing.model.MeterReading;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface MeterReadingRepository extends JpaRepository<MeterReading, String> {
@@ -42,4 +48,267 @@ public interface MeterReadingRepository extends JpaRepository<MeterReading, Stri
         @Param("meterId") String meterId,
         @Param("startDate") LocalDate startDate,
         @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Total usage and latest reading date of a meter over a date range, in one indexed range scan
+     */
+    @Query("SELECT COALESCE(SUM(mr.usageCcf), 0) AS usageCcf, MAX(mr.readingDate) AS lastReadingDate " +
+           "FROM MeterReading mr " +
+           "WHERE mr.meterId = :meterId " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate")
+    UsageToDate usageToDate(
+        @Param("meterId") String meterId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Stream the readings of the active meters with ids in (fromMeterId, toMeterId] for a date range,
+     * ordered by meter then date, so each meter's series arrives contiguously. Forward-only (MySQL streaming fetch),
+     * so callers must consume it inside a transaction and write on a different connection.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.meterId AS meterId, m.customerId AS customerId, c.customerType AS customerType, " +
+           "mr.readingDate AS readingDate, mr.usageCcf AS usageCcf " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "JOIN Customer c ON c.id = m.customerId " +
+           "WHERE m.status = 'ACTIVE' " +
+           "AND mr.meterId > :fromMeterId AND mr.meterId <= :toMeterId " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<MeterUsage> streamActiveMeterUsage(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("fromMeterId") String fromMeterId,
+        @Param("toMeterId") String toMeterId);
+    
+    /**
+     * Stream every active meter's readings since a date, ordered by meter then date (forward-only)
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.meterId AS meterId, m.customerId AS customerId, c.customerType AS customerType, " +
+           "mr.readingDate AS readingDate, mr.usageCcf AS usageCcf " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "JOIN Customer c ON c.id = m.customerId " +
+           "WHERE m.status = 'ACTIVE' " +
+           "AND mr.readingDate >= :startDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<MeterUsage> streamActiveMeterUsageSince(@Param("startDate") LocalDate startDate);
+    
+    /**
+     * Stream active meters' readings ingested after a point in time, whatever their reading date,
+     * ordered by meter then date (forward-only)
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.meterId AS meterId, m.customerId AS customerId, c.customerType AS customerType, " +
+           "mr.readingDate AS readingDate, mr.usageCcf AS usageCcf " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "JOIN Customer c ON c.id = m.customerId " +
+           "WHERE m.status = 'ACTIVE' " +
+           "AND mr.ingestedAt > :ingestedAfter " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<MeterUsage> streamActiveMeterUsageIngestedAfter(@Param("ingestedAfter") LocalDateTime ingestedAfter);
+
+    /**
+     * Earliest reading date among readings ingested after a point in time, or null if none were
+     */
+    @Query("SELECT MIN(mr.readingDate) FROM MeterReading mr WHERE mr.ingestedAt > :ingestedAfter")
+    LocalDate findEarliestReadingDateIngestedAfter(@Param("ingestedAfter") LocalDateTime ingestedAfter);
+
+    /**
+     * Stream the readings of all of a customer's meters for a date range in one query, ordered by meter
+     * then date (forward-only)
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.id AS id, mr.meterId AS meterId, mr.readingDate AS readingDate, mr.usageCcf AS usageCcf, " +
+           "mr.source AS source, mr.ingestedAt AS ingestedAt " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "WHERE m.customerId = :customerId " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<StoredReading> streamCustomerReadings(
+        @Param("customerId") String customerId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Usage of all of a customer's meters summed per day, for downsampled charts
+     */
+    @Query("SELECT mr.readingDate AS readingDate, SUM(mr.usageCcf) AS usageCcf, COUNT(mr) AS readings " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "WHERE m.customerId = :customerId " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY mr.readingDate " +
+           "ORDER BY mr.readingDate")
+    List<DailyTotal> sumDailyUsageByCustomer(
+        @Param("customerId") String customerId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Export streams: readings of one meter, one customer, one billing cycle or every meter for a date range,
+     * ordered by meter then date. Forward-only (MySQL streaming fetch), consumed inside a read-only transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.id AS id, mr.meterId AS meterId, m.externalLocationId AS externalLocationId, " +
+           "m.customerId AS customerId, mr.readingDate AS readingDate, mr.usageCcf AS usageCcf, " +
+           "mr.source AS source, mr.ingestedAt AS ingestedAt " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "WHERE mr.meterId = :meterId " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<ExportRow> streamExportForMeter(
+        @Param("meterId") String meterId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.id AS id, mr.meterId AS meterId, m.externalLocationId AS externalLocationId, " +
+           "m.customerId AS customerId, mr.readingDate AS readingDate, mr.usageCcf AS usageCcf, " +
+           "mr.source AS source, mr.ingestedAt AS ingestedAt " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "WHERE m.customerId = :customerId " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<ExportRow> streamExportForCustomer(
+        @Param("customerId") String customerId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.id AS id, mr.meterId AS meterId, m.externalLocationId AS externalLocationId, " +
+           "m.customerId AS customerId, mr.readingDate AS readingDate, mr.usageCcf AS usageCcf, " +
+           "mr.source AS source, mr.ingestedAt AS ingestedAt " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "JOIN Customer c ON c.id = m.customerId " +
+           "WHERE c.billingCycleNumber = :cycleNumber " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<ExportRow> streamExportForCycle(
+        @Param("cycleNumber") Integer cycleNumber,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.id AS id, mr.meterId AS meterId, m.externalLocationId AS externalLocationId, " +
+           "m.customerId AS customerId, mr.readingDate AS readingDate, mr.usageCcf AS usageCcf, " +
+           "mr.source AS source, mr.ingestedAt AS ingestedAt " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "WHERE mr.readingDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<ExportRow> streamExportAll(
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Stream every reading since a date, for any meter and in no particular order (forward-only)
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.meterId AS meterId, mr.readingDate AS readingDate, mr.usageCcf AS usageCcf, " +
+           "mr.source AS source " +
+           "FROM MeterReading mr " +
+           "WHERE mr.readingDate >= :startDate")
+    Stream<DailyReading> streamReadingsSince(@Param("startDate") LocalDate startDate);
+    
+    /**
+     * Stream readings dated on or after a date that were ingested after a point in time (forward-only)
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.meterId AS meterId, mr.readingDate AS readingDate, mr.usageCcf AS usageCcf, " +
+           "mr.source AS source " +
+           "FROM MeterReading mr " +
+           "WHERE mr.ingestedAt > :ingestedAfter " +
+           "AND mr.readingDate >= :startDate")
+    Stream<DailyReading> streamReadingsIngestedAfter(
+        @Param("ingestedAfter") LocalDateTime ingestedAfter,
+        @Param("startDate") LocalDate startDate);
+    
+    /**
+     * Stream the readings of the given meters (any status) for a date range, ordered by meter then date (forward-only)
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "" + Integer.MIN_VALUE))
+    @Query("SELECT mr.meterId AS meterId, m.customerId AS customerId, c.customerType AS customerType, " +
+           "mr.readingDate AS readingDate, mr.usageCcf AS usageCcf " +
+           "FROM MeterReading mr " +
+           "JOIN Meter m ON m.id = mr.meterId " +
+           "JOIN Customer c ON c.id = m.customerId " +
+           "WHERE mr.meterId IN :meterIds " +
+           "AND mr.readingDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY mr.meterId, mr.readingDate")
+    Stream<MeterUsage> streamMeterUsage(
+        @Param("meterIds") Collection<String> meterIds,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate);
+    
+    /**
+     * Projection of a meter's usage total over a range; lastReadingDate is null without readings
+     */
+    interface UsageToDate {
+        BigDecimal getUsageCcf();
+        LocalDate getLastReadingDate();
+    }
+
+    /**
+     * Projection of a reading with every column the API returns, without managed entity overhead
+     */
+    interface StoredReading {
+        String getId();
+        String getMeterId();
+        LocalDate getReadingDate();
+        BigDecimal getUsageCcf();
+        MeterReading.ReadingSource getSource();
+        LocalDateTime getIngestedAt();
+    }
+
+    /**
+     * Projection of one exported reading
+     */
+    interface ExportRow {
+        String getId();
+        String getMeterId();
+        String getExternalLocationId();
+        String getCustomerId();
+        LocalDate getReadingDate();
+        BigDecimal getUsageCcf();
+        MeterReading.ReadingSource getSource();
+        LocalDateTime getIngestedAt();
+    }
+
+    /**
+     * Projection of one day's usage summed over several meters
+     */
+    interface DailyTotal {
+        LocalDate getReadingDate();
+        BigDecimal getUsageCcf();
+        Long getReadings();
+    }
+
+    /**
+     * Projection of one daily reading without entity overhead
+     */
+    interface DailyReading {
+        String getMeterId();
+        LocalDate getReadingDate();
+        BigDecimal getUsageCcf();
+        MeterReading.ReadingSource getSource();
+    }
+
+    /**
+     * Projection of one daily reading with the meter's owner
+     */
+    interface MeterUsage {
+        String getMeterId();
+        String getCustomerId();
+        Customer.CustomerType getCustomerType();
+        LocalDate getReadingDate();
+        BigDecimal getUsageCcf();
+    }
 }
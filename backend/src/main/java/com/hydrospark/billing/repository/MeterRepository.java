@@ -2,6 +2,8 @@ package com.hydrospark.billing.repository;
 
 import com.hydrospark.billing.model.Meter;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,4 +14,14 @@ public interface MeterRepository extends JpaRepository<Meter, String> {
     Optional<Meter> findByExternalLocationId(String externalLocationId);
     List<Meter> findByCustomerId(String customerId);
     List<Meter> findByStatus(Meter.Status status);
+    
+    @Query("SELECT m.id FROM Meter m WHERE m.status = :status ORDER BY m.id")
+    List<String> findIdsByStatusOrderById(@Param("status") Meter.Status status);
+    
+    @Query("SELECT m.id FROM Meter m ORDER BY m.id")
+    List<String> findAllIdsOrderById();
+    
+    @Query("SELECT DISTINCT m.customerId FROM Meter m JOIN Customer c ON c.id = m.customerId " +
+           "WHERE m.status = 'ACTIVE' AND c.billingCycleNumber = :cycleNumber ORDER BY m.customerId")
+    List<String> findActiveCustomerIdsByBillingCycle(@Param("cycleNumber") Integer cycleNumber);
 }
@@ -23,4 +23,18 @@ public interface RatePlanRepository extends JpaRepository<RatePlan, String> {
     Optional<RatePlan> findActiveRatePlanForCustomerType(
         @Param("customerType") RatePlan.CustomerTypeScope customerType,
         @Param("date") LocalDate date);
+    
+    /**
+     * Plans that applied to a customer type on a date, including since-retired ones, latest start first.
+     * Used to find the plan an old bill was priced with.
+     */
+    @Query("SELECT rp FROM RatePlan rp " +
+           "WHERE rp.status <> 'DRAFT' " +
+           "AND rp.effectiveStartDate <= :date " +
+           "AND (rp.effectiveEndDate IS NULL OR rp.effectiveEndDate >= :date) " +
+           "AND (rp.customerTypeScope = :customerType OR rp.customerTypeScope = 'ANY') " +
+           "ORDER BY rp.effectiveStartDate DESC")
+    List<RatePlan> findPlansInEffectForCustomerType(
+        @Param("customerType") RatePlan.CustomerTypeScope customerType,
+        @Param("date") LocalDate date);
 }
@@ -0,0 +1,34 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.RatePlanVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RatePlanVersionRepository extends JpaRepository<RatePlanVersion, String> {
+
+    List<RatePlanVersion> findByRatePlanIdOrderByVersionNumberDesc(String ratePlanId);
+
+    Optional<RatePlanVersion> findTopByRatePlanIdOrderByVersionNumberDesc(String ratePlanId);
+
+    Optional<RatePlanVersion> findTopByRatePlanIdOrderByVersionNumberAsc(String ratePlanId);
+
+    /**
+     * Id of a plan's latest version, without loading its components
+     */
+    Optional<VersionId> findFirstByRatePlanIdOrderByVersionNumberDesc(String ratePlanId);
+
+    /**
+     * Version that was in force at a point in time
+     */
+    Optional<RatePlanVersion> findTopByRatePlanIdAndCreatedAtLessThanEqualOrderByVersionNumberDesc(
+        String ratePlanId, LocalDateTime asOf);
+
+    interface VersionId {
+        String getId();
+    }
+}
@@ -0,0 +1,9 @@
+package com.hydrospark.billing.repository;
+
+import com.hydrospark.billing.model.UsageBaseline;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UsageBaselineRepository extends JpaRepository<UsageBaseline, String> {
+}
@@ -2,6 +2,7 @@ package com.hydrospark.billing.repository;
 
 import com.hydrospark.billing.model.UsageForecast;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,12 +13,23 @@ import java.util.Optional;
 @Repository
 public interface UsageForecastRepository extends JpaRepository<UsageForecast, String> {
     
-    @Query("SELECT uf FROM UsageForecast uf " +
-           "WHERE uf.customerId = :customerId " +
-           "AND uf.targetPeriodStart <= :date " +
-           "AND uf.targetPeriodEnd >= :date " +
-           "ORDER BY uf.generatedAt DESC")
-    Optional<UsageForecast> findLatestForecastForCustomerAndDate(
-        @Param("customerId") String customerId,
-        @Param("date") LocalDate date);
+    /**
+     * Most recently generated forecast for a customer whose target period has not ended by the given date
+     */
+    Optional<UsageForecast> findFirstByCustomerIdAndTargetPeriodEndGreaterThanEqualOrderByGeneratedAtDesc(
+        String customerId, LocalDate date);
+    
+    /**
+     * Remove a cycle's forecasts for a target period and customer ids (fromCustomerId, toCustomerId], before they are regenerated
+     */
+    @Modifying
+    @Query("DELETE FROM UsageForecast uf " +
+           "WHERE uf.billingCycleNumber = :cycleNumber " +
+           "AND uf.targetPeriodStart = :targetPeriodStart " +
+           "AND uf.customerId > :fromCustomerId AND uf.customerId <= :toCustomerId")
+    int deleteCycleRange(
+        @Param("cycleNumber") Integer cycleNumber,
+        @Param("targetPeriodStart") LocalDate targetPeriodStart,
+        @Param("fromCustomerId") String fromCustomerId,
+        @Param("toCustomerId") String toCustomerId);
 }
@@ -0,0 +1,171 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.AnomalyAlert;
+import com.hydrospark.billing.model.AnomalyEvent;
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.repository.AnomalyAlertRepository;
+import com.hydrospark.billing.repository.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Anomaly alert outbox. Detection only inserts rows (in its own transaction); this drains them
+ * on a schedule, sending one digest email per customer with a bounded number of concurrent sends
+ * and retrying failures with exponential backoff. Mail latency never reaches the detection path.
+ *
+ * Every instance drains, so alerts are claimed before they are sent: the due rows are locked with
+ * SKIP LOCKED and their next attempt pushed out by the claim period. An instance that dies mid-send
+ * leaves its alerts to be picked up again once the claim runs out.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnomalyAlertSender {
+
+    private static final long MAX_BACKOFF_MINUTES = 60;
+    private static final int DRAIN_BATCH_SIZE = 1000;
+
+    private final AnomalyAlertRepository anomalyAlertRepository;
+    private final CustomerRepository customerRepository;
+    private final EmailService emailService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.anomaly-alerts.max-concurrent-sends:4}")
+    private int maxConcurrentSends;
+
+    @Value("${app.anomaly-alerts.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.anomaly-alerts.claim-minutes:15}")
+    private int claimMinutes;
+
+    // Detection runs in progress; draining waits for them so each customer gets one digest per run
+    private final AtomicInteger runsInProgress = new AtomicInteger();
+
+    /**
+     * Queue an alert for an anomaly; joins the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(AnomalyEvent anomaly) {
+        anomalyAlertRepository.save(AnomalyAlert.builder()
+                .customerId(anomaly.getCustomerId())
+                .anomalyEventId(anomaly.getId())
+                .description(anomaly.getDescription())
+                .build());
+    }
+
+    public void beginRun() {
+        runsInProgress.incrementAndGet();
+    }
+
+    public void endRun() {
+        runsInProgress.decrementAndGet();
+    }
+
+    /**
+     * Send every due alert, coalesced into one email per customer
+     */
+    @Scheduled(fixedDelayString = "${app.anomaly-alerts.drain-interval-ms:60000}")
+    public void drain() {
+        if (runsInProgress.get() > 0) return;
+
+        List<AnomalyAlert> due = claimDue();
+        if (due.isEmpty()) return;
+
+        Map<String, List<AnomalyAlert>> byCustomer = due.stream()
+                .collect(Collectors.groupingBy(AnomalyAlert::getCustomerId, LinkedHashMap::new, Collectors.toList()));
+        Map<String, Customer> customers = customerRepository.findAllById(byCustomer.keySet()).stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+
+        try (ExecutorService senders = Executors.newFixedThreadPool(Math.max(1, maxConcurrentSends))) {
+            byCustomer.forEach((customerId, alerts) -> senders.submit(() -> {
+                try {
+                    sendDigest(customers.get(customerId), alerts);
+                } catch (Exception e) {
+                    // Alerts stay claimed and are retried once the claim runs out
+                    log.error("Failed to process anomaly alerts for customer {}: {}", customerId, e.getMessage());
+                }
+            }));
+        }
+
+        log.info("Processed {} anomaly alerts for {} customers", due.size(), byCustomer.size());
+    }
+
+    /**
+     * Lock and claim the oldest due alerts in one short transaction, oldest first
+     */
+    private List<AnomalyAlert> claimDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> ids = new TransactionTemplate(transactionManager).execute(status -> {
+            List<String> locked = anomalyAlertRepository.lockDueIds(now, DRAIN_BATCH_SIZE);
+            if (!locked.isEmpty()) {
+                anomalyAlertRepository.claim(locked, now.plusMinutes(claimMinutes));
+            }
+            return locked;
+        });
+        if (ids == null || ids.isEmpty()) return List.of();
+
+        return anomalyAlertRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(AnomalyAlert::getCreatedAt))
+                .toList();
+    }
+
+    private void sendDigest(Customer customer, List<AnomalyAlert> alerts) {
+        LocalDateTime now = LocalDateTime.now();
+
+        if (customer == null || customer.getEmail() == null || customer.getEmail().isBlank()) {
+            alerts.forEach(a -> {
+                a.setStatus(AnomalyAlert.Status.SKIPPED);
+                a.setLastError("No email address on file");
+            });
+            anomalyAlertRepository.saveAll(alerts);
+            return;
+        }
+
+        try {
+            emailService.sendAnomalyDigestEmail(customer.getEmail(), customer.getName(),
+                    alerts.stream().map(AnomalyAlert::getDescription).toList());
+            alerts.forEach(a -> {
+                a.setStatus(AnomalyAlert.Status.SENT);
+                a.setSentAt(now);
+            });
+        } catch (Exception e) {
+            for (AnomalyAlert alert : alerts) {
+                int attempts = alert.getAttempts() + 1;
+                alert.setAttempts(attempts);
+                alert.setLastError(truncate(e.getMessage()));
+                if (attempts >= maxAttempts) {
+                    alert.setStatus(AnomalyAlert.Status.FAILED);
+                } else {
+                    alert.setNextAttemptAt(now.plusMinutes(Math.min(MAX_BACKOFF_MINUTES, 1L << (attempts - 1))));
+                }
+            }
+            log.warn("Anomaly digest to customer {} failed (attempt {}): {}",
+                    customer.getId(), alerts.get(0).getAttempts(), e.getMessage());
+        }
+        anomalyAlertRepository.saveAll(alerts);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) return null;
+        return message.length() <= 500 ? message : message.substring(0, 500);
+    }
+}
@@ -0,0 +1,399 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.AnomalyBackfillResult;
+import com.hydrospark.billing.model.AnomalyEvent;
+import com.hydrospark.billing.model.Meter;
+import com.hydrospark.billing.repository.AnomalyBackfillResultRepository;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import com.hydrospark.billing.repository.MeterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Replays anomaly detection over a historical date range, e.g. to measure a rule change against
+ * past data. Each partition of meters is read by one streamed query ordered by (meter, date); a
+ * meter's rolling 90-day window, zero-usage and high-usage runs are kept in memory and every day
+ * is judged as the nightly scan would have judged it on that day. Seasonal baselines are not used,
+ * since today's baseline already contains the future of the replayed dates.
+ *
+ * Results go to anomaly_backfill_results under a run name. A partition first clears its own
+ * results for the run and range, so running the same backfill again yields the same rows.
+ */
+@Service
+@Slf4j
+public class AnomalyBackfillService {
+
+    private static final int WINDOW_DAYS = 90;
+    private static final int PARTITIONS_PER_WORKER = 4;
+    // Keeps the IN list of a selected-meters partition reasonable
+    private static final int MAX_METERS_PER_PARTITION = 1000;
+
+    private final MeterReadingRepository meterReadingRepository;
+    private final MeterRepository meterRepository;
+    private final AnomalyBackfillResultRepository backfillResultRepository;
+    private final AnomalyRuleEngine anomalyRuleEngine;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int parallelism;
+    private final int writeBatchSize;
+
+    public AnomalyBackfillService(
+            MeterReadingRepository meterReadingRepository,
+            MeterRepository meterRepository,
+            AnomalyBackfillResultRepository backfillResultRepository,
+            AnomalyRuleEngine anomalyRuleEngine,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.anomaly-detection.parallelism:1}") int parallelism,
+            @Value("${app.anomaly-detection.write-batch-size:500}") int writeBatchSize) {
+        this.meterReadingRepository = meterReadingRepository;
+        this.meterRepository = meterRepository;
+        this.backfillResultRepository = backfillResultRepository;
+        this.anomalyRuleEngine = anomalyRuleEngine;
+        this.parallelism = Math.max(1, parallelism);
+        this.writeBatchSize = Math.max(1, writeBatchSize);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Writes must not share the connection of a streaming read
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Replay detection from startDate to endDate (inclusive) for the given meters, or every active
+     * meter when meterIds is empty, and store the findings under runName
+     */
+    public BackfillResult backfill(String runName, LocalDate startDate, LocalDate endDate, List<String> meterIds) {
+        if (runName == null || runName.isBlank() || runName.length() > 100) {
+            throw new RuntimeException("Backfill run name is required (at most 100 characters)");
+        }
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new RuntimeException("Backfill needs a start date on or before its end date");
+        }
+
+        log.info("Starting anomaly backfill '{}' from {} to {}", runName, startDate, endDate);
+        long started = System.currentTimeMillis();
+
+        List<Partition> partitions = meterIds == null || meterIds.isEmpty()
+                ? partitionActiveMeters(parallelism * PARTITIONS_PER_WORKER)
+                : partitionSelectedMeters(meterIds, parallelism * PARTITIONS_PER_WORKER);
+
+        BackfillResult result = new BackfillResult();
+        result.setRunName(runName);
+        result.setStartDate(startDate);
+        result.setEndDate(endDate);
+        result.setPartitions(partitions.size());
+
+        List<Future<PartitionResult>> futures = new ArrayList<>();
+        try (ExecutorService workers = Executors.newFixedThreadPool(parallelism, backfillWorkerThreads())) {
+            for (Partition partition : partitions) {
+                futures.add(workers.submit(() -> replayPartition(runName, partition, startDate, endDate)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    result.setFailedPartitions(result.getFailedPartitions() + 1);
+                    log.error("Anomaly backfill '{}' failed for {}: {}", runName, partitions.get(i),
+                            e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Anomaly backfill interrupted");
+                }
+            }
+        }
+
+        result.setElapsedMs(System.currentTimeMillis() - started);
+        log.info("Anomaly backfill '{}' complete: {} meters, {} readings, {} findings, {} of {} partitions failed, {} ms",
+                runName, result.getMetersReplayed(), result.getReadingsReplayed(), result.getFindingsByType(),
+                result.getFailedPartitions(), partitions.size(), result.getElapsedMs());
+        return result;
+    }
+
+    /**
+     * Stored findings of a run, per event type
+     */
+    public Map<String, Long> summary(String runName) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : backfillResultRepository.countByEventType(runName)) {
+            counts.put(((AnomalyEvent.EventType) row[0]).name(), (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private PartitionResult replayPartition(String runName, Partition partition, LocalDate startDate, LocalDate endDate) {
+        writeTransaction.executeWithoutResult(status -> {
+            if (partition.meterIds() == null) {
+                backfillResultRepository.deleteRunRange(runName, partition.fromExclusive(), partition.toInclusive(),
+                        startDate, endDate);
+            } else {
+                backfillResultRepository.deleteRunMeters(runName, partition.meterIds(), startDate, endDate);
+            }
+        });
+
+        // Start early enough that the window is full on the first replayed day
+        LocalDate readFrom = startDate.minusDays(WINDOW_DAYS);
+
+        return readOnlyTransaction.execute(status -> {
+            PartitionResult result = new PartitionResult();
+            List<AnomalyBackfillResult> pending = new ArrayList<>(writeBatchSize);
+            MeterReplay replay = null;
+
+            try (Stream<MeterReadingRepository.MeterUsage> rows = partition.meterIds() == null
+                    ? meterReadingRepository.streamActiveMeterUsage(readFrom, endDate,
+                            partition.fromExclusive(), partition.toInclusive())
+                    : meterReadingRepository.streamMeterUsage(partition.meterIds(), readFrom, endDate)) {
+                Iterator<MeterReadingRepository.MeterUsage> it = rows.iterator();
+                while (it.hasNext()) {
+                    MeterReadingRepository.MeterUsage row = it.next();
+
+                    if (replay == null || !row.getMeterId().equals(replay.meterId)) {
+                        if (replay != null) {
+                            replay.finish(endDate, pending);
+                        }
+                        replay = new MeterReplay(runName, row.getMeterId(), row.getCustomerId(),
+                                anomalyRuleEngine.rulesFor(row.getCustomerType()), startDate);
+                        result.meters++;
+                    }
+
+                    replay.observe(row.getReadingDate(), row.getUsageCcf().doubleValue(), endDate, pending);
+                    result.readings++;
+
+                    if (pending.size() >= writeBatchSize) {
+                        flush(pending, result);
+                    }
+                }
+                if (replay != null) {
+                    replay.finish(endDate, pending);
+                }
+            }
+            flush(pending, result);
+            return result;
+        });
+    }
+
+    private void flush(List<AnomalyBackfillResult> pending, PartitionResult result) {
+        if (pending.isEmpty()) return;
+        List<AnomalyBackfillResult> batch = List.copyOf(pending);
+        pending.clear();
+        writeTransaction.executeWithoutResult(status -> backfillResultRepository.saveAll(batch));
+        batch.forEach(r -> result.findings.merge(r.getEventType(), 1L, Long::sum));
+    }
+
+    private List<Partition> partitionActiveMeters(int count) {
+        List<String> ids = meterRepository.findIdsByStatusOrderById(Meter.Status.ACTIVE);
+        List<Partition> partitions = new ArrayList<>();
+        if (ids.isEmpty()) return partitions;
+
+        int size = (ids.size() + count - 1) / count;
+        String fromExclusive = "";
+        for (int end = size; ; end += size) {
+            String toInclusive = ids.get(Math.min(end, ids.size()) - 1);
+            partitions.add(new Partition(fromExclusive, toInclusive, null));
+            if (end >= ids.size()) break;
+            fromExclusive = toInclusive;
+        }
+        return partitions;
+    }
+
+    private List<Partition> partitionSelectedMeters(List<String> meterIds, int count) {
+        List<String> ids = meterIds.stream().distinct().sorted().toList();
+        int size = Math.min(MAX_METERS_PER_PARTITION, (ids.size() + count - 1) / count);
+
+        List<Partition> partitions = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += size) {
+            List<String> chunk = ids.subList(from, Math.min(from + size, ids.size()));
+            partitions.add(new Partition(null, null, List.copyOf(chunk)));
+        }
+        return partitions;
+    }
+
+    private static ThreadFactory backfillWorkerThreads() {
+        AtomicInteger seq = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "anomaly-backfill-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Rolling detection state of one meter: the last 90 days of readings in a ring buffer with
+     * running sums, plus the zero-usage and high-usage runs
+     */
+    private static final class MeterReplay {
+        final String runName;
+        final String meterId;
+        final String customerId;
+        final AnomalyRules rules;
+        final LocalDate startDate;
+
+        // Readings are unique per day, so the window never holds more than WINDOW_DAYS + 1 of them
+        final long[] days = new long[WINDOW_DAYS + 1];
+        final double[] usages = new double[WINDOW_DAYS + 1];
+        int head;
+        int size;
+        double sum;
+        double sumSquares;
+
+        long previousDay = Long.MIN_VALUE;
+        int zeroRun;
+        int highRun;
+
+        MeterReplay(String runName, String meterId, String customerId, AnomalyRules rules, LocalDate startDate) {
+            this.runName = runName;
+            this.meterId = meterId;
+            this.customerId = customerId;
+            this.rules = rules;
+            this.startDate = startDate;
+        }
+
+        void observe(LocalDate date, double usage, LocalDate endDate, List<AnomalyBackfillResult> out) {
+            long day = date.toEpochDay();
+            boolean consecutive = previousDay == day - 1;
+
+            // A nightly run would have seen the gap once the missing days reached the threshold
+            if (previousDay != Long.MIN_VALUE && rules.hasHistory(size) && rules.isDataGap(day - previousDay - 1)) {
+                addGap(LocalDate.ofEpochDay(previousDay + 1), endDate, out);
+            }
+
+            // Slide the window to (day - WINDOW_DAYS .. day]
+            while (size > 0 && days[head] < day - WINDOW_DAYS) {
+                sum -= usages[head];
+                sumSquares -= usages[head] * usages[head];
+                head = (head + 1) % days.length;
+                size--;
+            }
+            int tail = (head + size) % days.length;
+            days[tail] = day;
+            usages[tail] = usage;
+            size++;
+            sum += usage;
+            sumSquares += usage * usage;
+            previousDay = day;
+
+            double mean = sum / size;
+            double stdDev = Math.sqrt(Math.max(0, sumSquares / size - mean * mean));
+
+            zeroRun = usage == 0 ? (consecutive ? zeroRun + 1 : 1) : 0;
+            highRun = rules.isHigh(usage, mean) ? (consecutive ? highRun + 1 : 1) : 0;
+
+            if (date.isBefore(startDate) || !rules.hasHistory(size)) {
+                return;
+            }
+            if (rules.isSpike(usage, mean, stdDev)) {
+                out.add(result(date, AnomalyEvent.EventType.SPIKE, AnomalyEvent.Severity.HIGH, usage, mean));
+            }
+            if (rules.isZeroUsage(zeroRun)) {
+                out.add(result(date, AnomalyEvent.EventType.ZERO_USAGE, AnomalyEvent.Severity.MEDIUM, usage, mean));
+            }
+            if (rules.isSustainedHigh(highRun)) {
+                out.add(result(date, AnomalyEvent.EventType.SUSTAINED_HIGH, AnomalyEvent.Severity.HIGH, usage, mean));
+            }
+        }
+
+        /**
+         * A gap still open at the end of the range
+         */
+        void finish(LocalDate endDate, List<AnomalyBackfillResult> out) {
+            if (rules.hasHistory(size) && rules.isDataGap(endDate.toEpochDay() - previousDay)) {
+                addGap(LocalDate.ofEpochDay(previousDay + 1), endDate, out);
+            }
+        }
+
+        private void addGap(LocalDate gapStart, LocalDate endDate, List<AnomalyBackfillResult> out) {
+            if (gapStart.isBefore(startDate) || gapStart.isAfter(endDate)) return;
+            out.add(AnomalyBackfillResult.builder()
+                    .runName(runName)
+                    .customerId(customerId)
+                    .meterId(meterId)
+                    .eventDate(gapStart)
+                    .eventType(AnomalyEvent.EventType.DATA_GAP)
+                    .severity(AnomalyEvent.Severity.MEDIUM)
+                    .build());
+        }
+
+        private AnomalyBackfillResult result(LocalDate date, AnomalyEvent.EventType eventType,
+                                             AnomalyEvent.Severity severity, double usage, double mean) {
+            return AnomalyBackfillResult.builder()
+                    .runName(runName)
+                    .customerId(customerId)
+                    .meterId(meterId)
+                    .eventDate(date)
+                    .eventType(eventType)
+                    .severity(severity)
+                    .usageCcf(BigDecimal.valueOf(usage).setScale(3, RoundingMode.HALF_UP))
+                    .expectedCcf(BigDecimal.valueOf(mean).setScale(3, RoundingMode.HALF_UP))
+                    .build();
+        }
+    }
+
+    /** Meter ids (fromExclusive, toInclusive] of the active meters, or an explicit list when meterIds is set */
+    private record Partition(String fromExclusive, String toInclusive, List<String> meterIds) {}
+
+    private static class PartitionResult {
+        int meters;
+        long readings;
+        final Map<AnomalyEvent.EventType, Long> findings = new EnumMap<>(AnomalyEvent.EventType.class);
+    }
+
+    public static class BackfillResult {
+        private String runName;
+        private LocalDate startDate;
+        private LocalDate endDate;
+        private int partitions;
+        private int failedPartitions;
+        private int metersReplayed;
+        private long readingsReplayed;
+        private Map<String, Long> findingsByType = new LinkedHashMap<>();
+        private long elapsedMs;
+
+        void add(PartitionResult partition) {
+            metersReplayed += partition.meters;
+            readingsReplayed += partition.readings;
+            partition.findings.forEach((type, n) -> findingsByType.merge(type.name(), n, Long::sum));
+        }
+
+        // Getters and setters
+        public String getRunName() { return runName; }
+        public void setRunName(String runName) { this.runName = runName; }
+        public LocalDate getStartDate() { return startDate; }
+        public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public void setEndDate(LocalDate endDate) { this.endDate = endDate; }
+        public int getPartitions() { return partitions; }
+        public void setPartitions(int partitions) { this.partitions = partitions; }
+        public int getFailedPartitions() { return failedPartitions; }
+        public void setFailedPartitions(int failedPartitions) { this.failedPartitions = failedPartitions; }
+        public int getMetersReplayed() { return metersReplayed; }
+        public void setMetersReplayed(int metersReplayed) { this.metersReplayed = metersReplayed; }
+        public long getReadingsReplayed() { return readingsReplayed; }
+        public void setReadingsReplayed(long readingsReplayed) { this.readingsReplayed = readingsReplayed; }
+        public Map<String, Long> getFindingsByType() { return findingsByType; }
+        public void setFindingsByType(Map<String, Long> findingsByType) { this.findingsByType = findingsByType; }
+        public long getElapsedMs() { return elapsedMs; }
+        public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+    }
+}
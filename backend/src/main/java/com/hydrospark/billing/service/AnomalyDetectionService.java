@@ -6,18 +6,33 @@ import com.hydrospark.billing.model.Meter;
 import com.hydrospark.billing.model.MeterReading;
 import com.hydrospark.billing.repository.AnomalyEventRepository;
 import com.hydrospark.billing.repository.CustomerRepository;
+import com.hydrospark.billing.repository.MeterLastReadingRepository;
 import com.hydrospark.billing.repository.MeterReadingRepository;
 import com.hydrospark.billing.repository.MeterRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -25,40 +40,217 @@ import java.util.Optional;
 public class AnomalyDetectionService {
 
     private final MeterReadingRepository meterReadingRepository;
-    private final MeterRepository meterRepository;
     private final CustomerRepository customerRepository;
     private final AnomalyEventRepository anomalyEventRepository;
-    private final EmailService emailService;
+    private final AnomalyAlertSender anomalyAlertSender;
+    private final UsageBaselineService usageBaselineService;
+    private final AnomalyEventWriter anomalyEventWriter;
+    private final MeterRepository meterRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final AnomalyRuleEngine anomalyRuleEngine;
+    private final RecentReadingStore recentReadingStore;
+    private final LastReadingService lastReadingService;
+
+    @Value("${app.anomaly-detection.write-batch-size:500}")
+    private int writeBatchSize;
+
+    @Value("${app.anomaly-detection.parallelism:1}")
+    private int parallelism;
 
-    // Configurable thresholds
-    private static final double SPIKE_THRESHOLD_SIGMA = 3.0;  // 3 standard deviations
-    private static final int SUSTAINED_HIGH_DAYS = 3;
-    private static final int ZERO_USAGE_DAYS = 7;
-    private static final int DATA_GAP_DAYS = 3;
-    private static final double SUSTAINED_HIGH_MULTIPLIER = 2.0;
+    // More ranges than workers, so one slow range does not leave the other workers idle
+    private static final int PARTITIONS_PER_WORKER = 4;
 
     /**
      * Run anomaly detection for all active meters
      * Scheduled to run daily at 2:00 AM
+     *
+     * Active meter ids are split into contiguous ranges that a pool of app.anomaly-detection.parallelism
+     * workers scans independently. Each range is read by one streamed query ordered by (meter, date)
+     * in its own read-only transaction, and each meter is evaluated as soon as its rows have gone by.
+     * Anomalies are written in batches that commit on their own, so a failed range loses nothing
+     * found elsewhere. Customer alerts are queued in the outbox and sent once the run has finished.
      */
     @Scheduled(cron = "0 0 2 * * *")
-    @Transactional
     public void runDailyAnomalyDetection() {
         log.info("Starting daily anomaly detection...");
+        long started = System.currentTimeMillis();
 
-        List<Meter> activeMeters = meterRepository.findByStatus(Meter.Status.ACTIVE);
-        int anomaliesDetected = 0;
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(90);
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        List<MeterRange> ranges = partitionActiveMeters(Math.max(1, parallelism) * PARTITIONS_PER_WORKER);
+        List<Future<ScanResult>> futures = new ArrayList<>();
+        ScanResult total = new ScanResult();
+        int failedRanges = 0;
+
+        // Hold alert delivery until the run is over, so each customer gets a single digest
+        anomalyAlertSender.beginRun();
+        try (ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parallelism), anomalyWorkerThreads())) {
+            for (MeterRange range : ranges) {
+                futures.add(workers.submit(() -> readOnlyTransaction.execute(
+                        status -> scanRange(range, startDate, endDate))));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    total.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    failedRanges++;
+                    log.error("Anomaly detection failed for meters {}: {}", ranges.get(i), e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Anomaly detection interrupted");
+                }
+            }
+            total.anomaliesDetected += detectSilentMeters(startDate, endDate);
+        } finally {
+            anomalyAlertSender.endRun();
+        }
+
+        log.info("Anomaly detection complete. Scanned {} meters in {} ranges ({} failed) in {} ms, detected {} new anomalies.",
+                total.metersScanned, ranges.size(), failedRanges, System.currentTimeMillis() - started,
+                total.anomaliesDetected);
+    }
+
+    /**
+     * Data gaps of active meters whose last reading is older than the scan window. The range scan
+     * only sees meters with readings in the window, so these come from the last reading index.
+     */
+    private int detectSilentMeters(LocalDate windowStart, LocalDate endDate) {
+        List<AnomalyEvent> pending = new ArrayList<>();
+        int detected = 0;
+        for (MeterLastReadingRepository.SilentMeter meter : lastReadingService.silentSince(windowStart)) {
+            AnomalyRules rules = anomalyRuleEngine.rulesFor(meter.getCustomerType());
+            if (!rules.isDataGap(ChronoUnit.DAYS.between(meter.getReadingDate(), endDate))) continue;
+
+            LocalDate gapStart = meter.getReadingDate().plusDays(1);
+            pending.add(buildAnomaly(meter.getCustomerId(), meter.getMeterId(), gapStart,
+                    AnomalyEvent.EventType.DATA_GAP, AnomalyEvent.Severity.MEDIUM, rules.describeDataGap(gapStart)));
+            if (pending.size() >= writeBatchSize) {
+                detected += flush(pending);
+            }
+        }
+        return detected + flush(pending);
+    }
+
+    /**
+     * Split the sorted active meter ids into at most {@code count} contiguous ranges of similar size
+     */
+    private List<MeterRange> partitionActiveMeters(int count) {
+        List<String> meterIds = meterRepository.findIdsByStatusOrderById(Meter.Status.ACTIVE);
+        List<MeterRange> ranges = new ArrayList<>();
+        if (meterIds.isEmpty()) return ranges;
+
+        int size = (meterIds.size() + count - 1) / count;
+        String fromExclusive = "";
+        for (int end = size; ; end += size) {
+            String toInclusive = meterIds.get(Math.min(end, meterIds.size()) - 1);
+            ranges.add(new MeterRange(fromExclusive, toInclusive));
+            if (end >= meterIds.size()) break;
+            fromExclusive = toInclusive;
+        }
+        return ranges;
+    }
+
+    /**
+     * Stream one range of meters and evaluate each window, writing anomalies in batches.
+     * Must run inside a transaction; memory use is one meter's window plus one write batch.
+     */
+    private ScanResult scanRange(MeterRange range, LocalDate startDate, LocalDate endDate) {
+        ScanResult result = new ScanResult();
+        List<AnomalyEvent> pending = new ArrayList<>(writeBatchSize);
+        List<MeterReading> window = new ArrayList<>(91);
+        String meterId = null;
+        String customerId = null;
+        AnomalyRules rules = null;
+
+        try (Stream<MeterReadingRepository.MeterUsage> rows = meterReadingRepository.streamActiveMeterUsage(
+                startDate, endDate, range.fromExclusive(), range.toInclusive())) {
+            Iterator<MeterReadingRepository.MeterUsage> it = rows.iterator();
+            while (it.hasNext()) {
+                MeterReadingRepository.MeterUsage row = it.next();
+
+                if (!row.getMeterId().equals(meterId)) {
+                    if (meterId != null) {
+                        evaluateWindow(meterId, customerId, rules, window, endDate, pending);
+                        result.metersScanned++;
+                    }
+                    meterId = row.getMeterId();
+                    customerId = row.getCustomerId();
+                    rules = anomalyRuleEngine.rulesFor(row.getCustomerType());
+                    window.clear();
+                }
+
+                window.add(MeterReading.builder()
+                        .meterId(row.getMeterId())
+                        .readingDate(row.getReadingDate())
+                        .usageCcf(row.getUsageCcf())
+                        .build());
+
+                if (pending.size() >= writeBatchSize) {
+                    result.anomaliesDetected += flush(pending);
+                }
+            }
 
-        for (Meter meter : activeMeters) {
-            try {
-                int count = detectAnomaliesForMeter(meter);
-                anomaliesDetected += count;
-            } catch (Exception e) {
-                log.error("Error detecting anomalies for meter {}: {}", meter.getId(), e.getMessage());
+            if (meterId != null) {
+                evaluateWindow(meterId, customerId, rules, window, endDate, pending);
+                result.metersScanned++;
             }
         }
+        result.anomaliesDetected += flush(pending);
+        return result;
+    }
+
+    private static ThreadFactory anomalyWorkerThreads() {
+        AtomicInteger seq = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "anomaly-scan-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Evaluate one meter's streamed window and queue whatever it finds
+     */
+    private void evaluateWindow(String meterId, String customerId, AnomalyRules rules, List<MeterReading> readings,
+                                LocalDate endDate, List<AnomalyEvent> pending) {
+        if (!rules.hasHistory(readings.size())) {
+            return;
+        }
+
+        try {
+            UsageStatistics stats = calculateStatistics(readings);
+
+            for (Finding finding : findAnomalies(readings, stats, usageBaselineService.get(meterId), rules, endDate)) {
+                pending.add(buildAnomaly(customerId, meterId, finding.reading().getReadingDate(),
+                        finding.eventType(), finding.severity(),
+                        buildDescription(rules, finding.eventType(), finding.reading(), finding.normal())));
+            }
+
+            LocalDate gapStart = findDataGapStart(readings, rules, endDate);
+            if (gapStart != null) {
+                pending.add(buildAnomaly(customerId, meterId, gapStart, AnomalyEvent.EventType.DATA_GAP,
+                        AnomalyEvent.Severity.MEDIUM, rules.describeDataGap(gapStart)));
+            }
+        } catch (Exception e) {
+            log.error("Error detecting anomalies for meter {}: {}", meterId, e.getMessage());
+        }
+    }
 
-        log.info("Anomaly detection complete. Detected {} new anomalies.", anomaliesDetected);
+    private int flush(List<AnomalyEvent> pending) {
+        if (pending.isEmpty()) return 0;
+        try {
+            return anomalyEventWriter.writeBatch(pending);
+        } catch (Exception e) {
+            log.error("Failed to write batch of {} anomalies: {}", pending.size(), e.getMessage());
+            return 0;
+        } finally {
+            pending.clear();
+        }
     }
 
     /**
@@ -72,141 +264,148 @@ public class AnomalyDetectionService {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(90);
 
-        List<MeterReading> readings = meterReadingRepository
-                .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(
-                        meter.getId(), startDate, endDate);
+        List<MeterReading> readings = recentReadings(meter.getId(), startDate, endDate);
+
+        Customer customer = customerRepository.findById(meter.getCustomerId())
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        AnomalyRules rules = anomalyRuleEngine.rulesFor(customer.getCustomerType());
 
-        if (readings.size() < 30) {
+        if (!rules.hasHistory(readings.size())) {
             log.debug("Insufficient data for meter {} ({} readings)", meter.getId(), readings.size());
             return 0;
         }
 
         int anomaliesDetected = 0;
+        Set<String> seenThisRun = new HashSet<>();
 
         // Calculate statistics
         UsageStatistics stats = calculateStatistics(readings);
 
-        // Get recent readings (last 7 days)
-        LocalDate recentStartDate = endDate.minusDays(7);
-        List<MeterReading> recentReadings = readings.stream()
-                .filter(r -> !r.getReadingDate().isBefore(recentStartDate))
-                .toList();
-
-        // Check each recent reading for anomalies
-        for (MeterReading reading : recentReadings) {
-
-            // Spike
-            if (detectSpike(reading, stats)) {
-                createAnomalyEvent(meter, reading, AnomalyEvent.EventType.SPIKE,
-                        AnomalyEvent.Severity.HIGH, stats);
-                anomaliesDetected++;
-            }
-
-            // Zero usage
-            if (detectZeroUsage(meter, reading.getReadingDate())) {
-                createAnomalyEvent(meter, reading, AnomalyEvent.EventType.ZERO_USAGE,
-                        AnomalyEvent.Severity.MEDIUM, stats);
-                anomaliesDetected++;
-            }
-
-            // Sustained high usage
-            if (detectSustainedHighUsage(meter, reading.getReadingDate(), stats)) {
-                createAnomalyEvent(meter, reading, AnomalyEvent.EventType.SUSTAINED_HIGH,
-                        AnomalyEvent.Severity.HIGH, stats);
+        for (Finding finding : findAnomalies(readings, stats, usageBaselineService.get(meter.getId()), rules, endDate)) {
+            if (createAnomalyEvent(meter, customer, rules, finding.reading(), finding.eventType(), finding.severity(),
+                    finding.normal(), seenThisRun)) {
                 anomaliesDetected++;
             }
         }
 
         // Data gaps
-        if (detectDataGap(readings, endDate)) {
-            createDataGapAnomaly(meter, endDate);
+        LocalDate gapStart = findDataGapStart(readings, rules, endDate);
+        if (gapStart != null && createDataGapAnomaly(meter, customer, rules, gapStart, seenThisRun)) {
             anomaliesDetected++;
         }
 
         return anomaliesDetected;
     }
 
-    private boolean detectSpike(MeterReading reading, UsageStatistics stats) {
-        if (reading.getUsageCcf().compareTo(BigDecimal.ZERO) <= 0) {
-            return false;
+    /**
+     * A meter's readings for a window, from the recent reading store when it covers the window
+     */
+    private List<MeterReading> recentReadings(String meterId, LocalDate startDate, LocalDate endDate) {
+        List<RecentReadingStore.DailyReading> recent = recentReadingStore.read(meterId, startDate, endDate);
+        if (recent == null) {
+            return meterReadingRepository.findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(
+                    meterId, startDate, endDate);
         }
 
-        double usage = reading.getUsageCcf().doubleValue();
-        double threshold = stats.mean + (SPIKE_THRESHOLD_SIGMA * stats.stdDev);
-
-        return usage > threshold && usage > stats.mean * 1.5;
+        List<MeterReading> readings = new ArrayList<>(recent.size());
+        for (RecentReadingStore.DailyReading reading : recent) {
+            readings.add(MeterReading.builder()
+                    .meterId(meterId)
+                    .readingDate(reading.readingDate())
+                    .usageCcf(reading.usageCcf())
+                    .source(reading.source())
+                    .build());
+        }
+        return readings;
     }
 
-    private boolean detectZeroUsage(Meter meter, LocalDate date) {
-        LocalDate startDate = date.minusDays(ZERO_USAGE_DAYS - 1);
+    /**
+     * Evaluate the last 7 days of an ordered series in one pass against one compiled rule set.
+     * Zero-usage and sustained-high windows are tracked as runs of consecutive days, so no further
+     * reads are needed and every rule shares the same window.
+     * Where the meter's seasonal baseline covers a date, "normal" is the baseline's expectation
+     * for that month and weekday; otherwise it is the 90-day mean and deviation.
+     */
+    private List<Finding> findAnomalies(List<MeterReading> readings, UsageStatistics stats,
+                                        SeasonalBaseline baseline, AnomalyRules rules, LocalDate endDate) {
+        LocalDate recentStartDate = endDate.minusDays(7);
 
-        List<MeterReading> zeroReadings = meterReadingRepository
-                .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(meter.getId(), startDate, date);
+        List<Finding> findings = new ArrayList<>();
+        LocalDate previousDate = null;
+        int zeroRun = 0;
+        int highRun = 0;
 
-        if (zeroReadings.size() < ZERO_USAGE_DAYS) {
-            return false;
-        }
+        for (MeterReading reading : readings) {
+            LocalDate date = reading.getReadingDate();
+            boolean consecutive = previousDate != null && previousDate.plusDays(1).equals(date);
+            previousDate = date;
 
-        return zeroReadings.stream()
-                .allMatch(r -> r.getUsageCcf().compareTo(BigDecimal.ZERO) == 0);
-    }
+            UsageStatistics normal = normalFor(date, stats, baseline);
+            BigDecimal usage = reading.getUsageCcf();
+            zeroRun = usage.compareTo(BigDecimal.ZERO) == 0 ? (consecutive ? zeroRun + 1 : 1) : 0;
+            highRun = rules.isHigh(usage.doubleValue(), normal.mean) ? (consecutive ? highRun + 1 : 1) : 0;
 
-    private boolean detectSustainedHighUsage(Meter meter, LocalDate date, UsageStatistics stats) {
-        LocalDate startDate = date.minusDays(SUSTAINED_HIGH_DAYS - 1);
+            if (date.isBefore(recentStartDate)) {
+                continue;
+            }
 
-        List<MeterReading> highReadings = meterReadingRepository
-                .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(meter.getId(), startDate, date);
+            // Spike
+            if (rules.isSpike(usage.doubleValue(), normal.mean, normal.stdDev)) {
+                findings.add(new Finding(reading, AnomalyEvent.EventType.SPIKE, AnomalyEvent.Severity.HIGH, normal));
+            }
 
-        if (highReadings.size() < SUSTAINED_HIGH_DAYS) {
-            return false;
+            // Zero usage
+            if (rules.isZeroUsage(zeroRun)) {
+                findings.add(new Finding(reading, AnomalyEvent.EventType.ZERO_USAGE, AnomalyEvent.Severity.MEDIUM, normal));
+            }
+
+            // Sustained high usage
+            if (rules.isSustainedHigh(highRun)) {
+                findings.add(new Finding(reading, AnomalyEvent.EventType.SUSTAINED_HIGH, AnomalyEvent.Severity.HIGH, normal));
+            }
         }
 
-        double threshold = stats.mean * SUSTAINED_HIGH_MULTIPLIER;
+        return findings;
+    }
 
-        return highReadings.stream()
-                .allMatch(r -> r.getUsageCcf().doubleValue() > threshold);
+    private UsageStatistics normalFor(LocalDate date, UsageStatistics stats, SeasonalBaseline baseline) {
+        if (baseline == null) return stats;
+        synchronized (baseline) {
+            return baseline.covers(date)
+                    ? new UsageStatistics(baseline.expected(date), baseline.stdDev(date))
+                    : stats;
+        }
     }
 
-    private boolean detectDataGap(List<MeterReading> readings, LocalDate endDate) {
-        if (readings.isEmpty()) return false;
+    /**
+     * First missing day of an ongoing gap, or null. The gap keeps this date on every run,
+     * so the same gap is only recorded once.
+     */
+    private LocalDate findDataGapStart(List<MeterReading> readings, AnomalyRules rules, LocalDate endDate) {
+        if (readings.isEmpty()) return null;
 
         LocalDate lastReading = readings.get(readings.size() - 1).getReadingDate();
         long daysSinceLastReading = java.time.temporal.ChronoUnit.DAYS.between(lastReading, endDate);
 
-        return daysSinceLastReading >= DATA_GAP_DAYS;
+        return rules.isDataGap(daysSinceLastReading) ? lastReading.plusDays(1) : null;
     }
 
-    private void createAnomalyEvent(Meter meter, MeterReading reading,
-                                   AnomalyEvent.EventType eventType,
-                                   AnomalyEvent.Severity severity,
-                                   UsageStatistics stats) {
+    private boolean createAnomalyEvent(Meter meter, Customer customer, AnomalyRules rules, MeterReading reading,
+                                       AnomalyEvent.EventType eventType,
+                                       AnomalyEvent.Severity severity,
+                                       UsageStatistics stats,
+                                       Set<String> seenThisRun) {
 
         // Avoid duplicates: same meter/date/type while OPEN
-        Optional<AnomalyEvent> existing = anomalyEventRepository.findByMeterId(meter.getId()).stream()
-                .filter(a -> a.getEventDate().equals(reading.getReadingDate())
-                        && a.getEventType() == eventType
-                        && a.getStatus() == AnomalyEvent.Status.OPEN)
-                .findFirst();
-
-        if (existing.isPresent()) {
+        if (isDuplicate(meter.getId(), reading.getReadingDate(), eventType, seenThisRun)) {
             log.debug("Anomaly already exists for meter {} on {}", meter.getId(), reading.getReadingDate());
-            return;
+            return false;
         }
 
-        Customer customer = customerRepository.findById(meter.getCustomerId())
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        String description = buildDescription(rules, eventType, reading, stats);
 
-        String description = buildDescription(eventType, reading, stats);
-
-        AnomalyEvent anomaly = AnomalyEvent.builder()
-                .customerId(customer.getId())
-                .meterId(meter.getId())
-                .eventDate(reading.getReadingDate())
-                .eventType(eventType)
-                .severity(severity)
-                .description(description)
-                .status(AnomalyEvent.Status.OPEN)
-                .build();
+        AnomalyEvent anomaly = buildAnomaly(customer.getId(), meter.getId(), reading.getReadingDate(),
+                eventType, severity, description);
 
         anomalyEventRepository.save(anomaly);
 
@@ -214,49 +413,56 @@ public class AnomalyDetectionService {
                 reading.getReadingDate());
 
         if (customer.getEmail() != null && !customer.getEmail().isBlank()) {
-            emailService.sendAnomalyAlertEmail(customer.getEmail(), customer.getName(), description);
+            anomalyAlertSender.enqueue(anomaly);
         }
+        return true;
     }
 
-    private void createDataGapAnomaly(Meter meter, LocalDate date) {
-        Customer customer = customerRepository.findById(meter.getCustomerId())
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-        String description = String.format("No meter readings received for %d or more consecutive days", DATA_GAP_DAYS);
+    private boolean createDataGapAnomaly(Meter meter, Customer customer, AnomalyRules rules, LocalDate gapStart,
+                                         Set<String> seenThisRun) {
+        if (isDuplicate(meter.getId(), gapStart, AnomalyEvent.EventType.DATA_GAP, seenThisRun)) {
+            log.debug("Data gap since {} already recorded for meter {}", gapStart, meter.getId());
+            return false;
+        }
 
-        AnomalyEvent anomaly = AnomalyEvent.builder()
-                .customerId(customer.getId())
-                .meterId(meter.getId())
-                .eventDate(date)
-                .eventType(AnomalyEvent.EventType.DATA_GAP)
-                .severity(AnomalyEvent.Severity.MEDIUM)
-                .description(description)
-                .status(AnomalyEvent.Status.OPEN)
-                .build();
+        AnomalyEvent anomaly = buildAnomaly(customer.getId(), meter.getId(), gapStart,
+                AnomalyEvent.EventType.DATA_GAP, AnomalyEvent.Severity.MEDIUM, rules.describeDataGap(gapStart));
 
         anomalyEventRepository.save(anomaly);
 
-        log.warn("Data gap detected for meter {}", meter.getExternalLocationId());
+        log.warn("Data gap detected for meter {} since {}", meter.getExternalLocationId(), gapStart);
+        return true;
     }
 
-    private String buildDescription(AnomalyEvent.EventType eventType, MeterReading reading, UsageStatistics stats) {
-        double usage = reading.getUsageCcf().doubleValue();
-
-        return switch (eventType) {
-            case SPIKE -> String.format(
-                    "Usage spike detected: %.1f CCF (%.1fx normal usage). Average usage is %.1f CCF.",
-                    usage, usage / stats.mean, stats.mean);
-
-            case SUSTAINED_HIGH -> String.format(
-                    "Sustained high usage detected over %d days: %.1f CCF/day (%.1fx normal). This may indicate a leak.",
-                    SUSTAINED_HIGH_DAYS, usage, usage / stats.mean);
+    /**
+     * Indexed existence check for an OPEN anomaly, short-circuited by keys already handled in this run
+     */
+    private boolean isDuplicate(String meterId, LocalDate eventDate, AnomalyEvent.EventType eventType,
+                                Set<String> seenThisRun) {
+        if (!seenThisRun.add(meterId + "|" + eventDate + "|" + eventType)) {
+            return true;
+        }
+        return anomalyEventRepository.existsByMeterIdAndEventDateAndEventTypeAndStatus(
+                meterId, eventDate, eventType, AnomalyEvent.Status.OPEN);
+    }
 
-            case ZERO_USAGE -> String.format(
-                    "Zero usage detected for %d consecutive days. This may indicate a meter issue or property vacancy.",
-                    ZERO_USAGE_DAYS);
+    private AnomalyEvent buildAnomaly(String customerId, String meterId, LocalDate eventDate,
+                                      AnomalyEvent.EventType eventType, AnomalyEvent.Severity severity,
+                                      String description) {
+        return AnomalyEvent.builder()
+                .customerId(customerId)
+                .meterId(meterId)
+                .eventDate(eventDate)
+                .eventType(eventType)
+                .severity(severity)
+                .description(description)
+                .status(AnomalyEvent.Status.OPEN)
+                .build();
+    }
 
-            default -> "Unusual usage pattern detected";
-        };
+    private String buildDescription(AnomalyRules rules, AnomalyEvent.EventType eventType, MeterReading reading,
+                                    UsageStatistics stats) {
+        return rules.describe(eventType, reading.getUsageCcf().doubleValue(), stats.mean);
     }
 
     private UsageStatistics calculateStatistics(List<MeterReading> readings) {
@@ -311,6 +517,21 @@ public class AnomalyDetectionService {
         log.info("Anomaly {} dismissed by user {}", anomalyId, userId);
     }
 
+    private record MeterRange(String fromExclusive, String toInclusive) {}
+
+    private static class ScanResult {
+        int metersScanned;
+        int anomaliesDetected;
+
+        void add(ScanResult other) {
+            metersScanned += other.metersScanned;
+            anomaliesDetected += other.anomaliesDetected;
+        }
+    }
+
+    private record Finding(MeterReading reading, AnomalyEvent.EventType eventType, AnomalyEvent.Severity severity,
+                           UsageStatistics normal) {}
+
     private static class UsageStatistics {
         final double mean;
         final double stdDev;
@@ -0,0 +1,81 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.AnomalyEvent;
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.repository.AnomalyEventRepository;
+import com.hydrospark.billing.repository.CustomerRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Persists anomalies found by a bulk scan in batches, each in its own transaction
+ * (and therefore its own connection, since the scan's connection is busy streaming)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnomalyEventWriter {
+
+    private final AnomalyEventRepository anomalyEventRepository;
+    private final CustomerRepository customerRepository;
+    private final AnomalyAlertSender anomalyAlertSender;
+
+    /**
+     * Save a batch of anomalies, skipping any already OPEN for the same meter/date/type,
+     * and queue alerts for the affected customers. Returns the number actually saved.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int writeBatch(List<AnomalyEvent> anomalies) {
+        if (anomalies.isEmpty()) return 0;
+
+        Set<String> meterIds = anomalies.stream().map(AnomalyEvent::getMeterId).collect(Collectors.toSet());
+        LocalDate fromDate = anomalies.stream().map(AnomalyEvent::getEventDate)
+                .min(Comparator.naturalOrder()).orElseThrow();
+
+        Set<String> seen = new HashSet<>();
+        anomalyEventRepository.findByMeterIdInAndStatusAndEventDateGreaterThanEqual(
+                        meterIds, AnomalyEvent.Status.OPEN, fromDate)
+                .forEach(a -> seen.add(key(a)));
+
+        List<AnomalyEvent> toSave = new ArrayList<>();
+        for (AnomalyEvent anomaly : anomalies) {
+            if (seen.add(key(anomaly))) {
+                toSave.add(anomaly);
+            }
+        }
+        anomalyEventRepository.saveAll(toSave);
+
+        Map<String, Customer> customers = customerRepository.findAllById(
+                        toSave.stream().map(AnomalyEvent::getCustomerId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+
+        for (AnomalyEvent anomaly : toSave) {
+            if (anomaly.getEventType() == AnomalyEvent.EventType.DATA_GAP) continue;
+            Customer customer = customers.get(anomaly.getCustomerId());
+            if (customer != null && customer.getEmail() != null && !customer.getEmail().isBlank()) {
+                anomalyAlertSender.enqueue(anomaly);
+            }
+        }
+
+        log.debug("Wrote {} anomalies ({} duplicates skipped)", toSave.size(), anomalies.size() - toSave.size());
+        return toSave.size();
+    }
+
+    private static String key(AnomalyEvent anomaly) {
+        return anomaly.getMeterId() + "|" + anomaly.getEventDate() + "|" + anomaly.getEventType();
+    }
+}
@@ -0,0 +1,66 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.config.AnomalyDetectionProperties;
+import com.hydrospark.billing.model.Customer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles the configured anomaly rules once at startup, one AnomalyRules per customer type,
+ * so detection looks rules up instead of re-reading configuration per meter.
+ * Changing app.anomaly-detection.* (e.g. through environment variables) takes effect on restart.
+ */
+@Component
+@Slf4j
+public class AnomalyRuleEngine {
+
+    private final AnomalyRules defaults;
+    private final Map<Customer.CustomerType, AnomalyRules> byCustomerType = new EnumMap<>(Customer.CustomerType.class);
+
+    public AnomalyRuleEngine(AnomalyDetectionProperties properties) {
+        this.defaults = compile(properties, new AnomalyDetectionProperties.Overrides());
+        for (Customer.CustomerType type : Customer.CustomerType.values()) {
+            AnomalyDetectionProperties.Overrides overrides = properties.getCustomerTypes().get(type);
+            byCustomerType.put(type, overrides == null ? defaults : compile(properties, overrides));
+        }
+        log.info("Anomaly rules compiled: default {}, overrides for {}", defaults,
+                properties.getCustomerTypes().keySet());
+    }
+
+    /**
+     * Rules for a customer type; the defaults when the type is unknown
+     */
+    public AnomalyRules rulesFor(Customer.CustomerType customerType) {
+        return customerType == null ? defaults : byCustomerType.get(customerType);
+    }
+
+    public AnomalyRules defaults() {
+        return defaults;
+    }
+
+    /**
+     * Effective rules, keyed "DEFAULT" and by customer type
+     */
+    public Map<String, AnomalyRules> describe() {
+        Map<String, AnomalyRules> rules = new LinkedHashMap<>();
+        rules.put("DEFAULT", defaults);
+        byCustomerType.forEach((type, r) -> rules.put(type.name(), r));
+        return rules;
+    }
+
+    private static AnomalyRules compile(AnomalyDetectionProperties base, AnomalyDetectionProperties.Overrides o) {
+        return new AnomalyRules(
+                o.getRules() != null ? o.getRules() : base.getRules(),
+                o.getSpikeThreshold() != null ? o.getSpikeThreshold() : base.getSpikeThreshold(),
+                o.getSpikeMinRatio() != null ? o.getSpikeMinRatio() : base.getSpikeMinRatio(),
+                o.getSustainedHighDays() != null ? o.getSustainedHighDays() : base.getSustainedHighDays(),
+                o.getSustainedHighMultiplier() != null ? o.getSustainedHighMultiplier() : base.getSustainedHighMultiplier(),
+                o.getZeroUsageDays() != null ? o.getZeroUsageDays() : base.getZeroUsageDays(),
+                o.getDataGapDays() != null ? o.getDataGapDays() : base.getDataGapDays(),
+                o.getMinHistoryDays() != null ? o.getMinHistoryDays() : base.getMinHistoryDays());
+    }
+}
@@ -0,0 +1,82 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.AnomalyEvent;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * One compiled set of anomaly rules. Immutable, so the nightly workers and the incremental
+ * detector share instances without locking; AnomalyRuleEngine builds one per customer type.
+ */
+public record AnomalyRules(
+        Set<AnomalyEvent.EventType> enabled,
+        double spikeThreshold,
+        double spikeMinRatio,
+        int sustainedHighDays,
+        double sustainedHighMultiplier,
+        int zeroUsageDays,
+        int dataGapDays,
+        int minHistoryDays) {
+
+    public AnomalyRules {
+        enabled = Set.copyOf(enabled);
+        if (sustainedHighDays < 1 || zeroUsageDays < 1 || dataGapDays < 1 || minHistoryDays < 1) {
+            throw new RuntimeException("Anomaly rule day counts must be at least 1");
+        }
+        if (spikeThreshold < 0 || spikeMinRatio < 0 || sustainedHighMultiplier < 0) {
+            throw new RuntimeException("Anomaly rule thresholds must not be negative");
+        }
+    }
+
+    public boolean hasHistory(int readings) {
+        return readings >= minHistoryDays;
+    }
+
+    public boolean isSpike(double usage, double mean, double stdDev) {
+        return enabled.contains(AnomalyEvent.EventType.SPIKE)
+                && usage > 0
+                && usage > mean + spikeThreshold * stdDev
+                && usage > mean * spikeMinRatio;
+    }
+
+    /** Whether a day counts towards a sustained-high run */
+    public boolean isHigh(double usage, double mean) {
+        return usage > mean * sustainedHighMultiplier;
+    }
+
+    public boolean isSustainedHigh(int run) {
+        return run >= sustainedHighDays && enabled.contains(AnomalyEvent.EventType.SUSTAINED_HIGH);
+    }
+
+    public boolean isZeroUsage(int run) {
+        return run >= zeroUsageDays && enabled.contains(AnomalyEvent.EventType.ZERO_USAGE);
+    }
+
+    public boolean isDataGap(long daysSinceLastReading) {
+        return daysSinceLastReading >= dataGapDays && enabled.contains(AnomalyEvent.EventType.DATA_GAP);
+    }
+
+    public String describe(AnomalyEvent.EventType eventType, double usage, double mean) {
+        return switch (eventType) {
+            case SPIKE -> String.format(
+                    "Usage spike detected: %.1f CCF (%.1fx normal usage). Average usage is %.1f CCF.",
+                    usage, usage / mean, mean);
+
+            case SUSTAINED_HIGH -> String.format(
+                    "Sustained high usage detected over %d days: %.1f CCF/day (%.1fx normal). This may indicate a leak.",
+                    sustainedHighDays, usage, usage / mean);
+
+            case ZERO_USAGE -> String.format(
+                    "Zero usage detected for %d consecutive days. This may indicate a meter issue or property vacancy.",
+                    zeroUsageDays);
+
+            default -> "Unusual usage pattern detected";
+        };
+    }
+
+    public String describeDataGap(LocalDate gapStart) {
+        return String.format("No meter readings received since %s (%d or more consecutive days)",
+                gapStart, dataGapDays);
+    }
+}
@@ -0,0 +1,352 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.model.Meter;
+import com.hydrospark.billing.model.RatePlan;
+import com.hydrospark.billing.model.UsageForecast;
+import com.hydrospark.billing.repository.CustomerRepository;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import com.hydrospark.billing.repository.MeterRepository;
+import com.hydrospark.billing.repository.RatePlanRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Projected bill for the open (calendar month) billing period, priced without persisting anything.
+ *
+ * Usage to date comes from a running per-meter accumulator: loaded from the recent reading store (or
+ * one range query) the first time a meter is projected in a month, then advanced in memory by
+ * committed readings. The rest of the period is estimated from the meter's seasonal baseline when it
+ * has history for the month, its run rate this month, or the cached forecast, in that order.
+ * Customers' meters and each customer type's compiled rate plan are cached too, so a repeated
+ * projection does no database work. Everything is dropped nightly after the monthly rollup is
+ * reconciled, which picks up new meters and corrected readings.
+ *
+ * Each meter has a change counter that the ingest listener bumps before touching the accumulator. A
+ * month loaded while the counter moved may be missing a reading, so it is thrown away and loaded
+ * again. The listener runs after RecentReadingStore's, so once the counter has moved the store holds
+ * the reading.
+ */
+@Service
+@Slf4j
+public class BillProjectionService {
+
+    // Loads of a meter's month that may be retried when readings keep arriving during the load
+    private static final int MAX_LOAD_ATTEMPTS = 3;
+
+    private final CustomerRepository customerRepository;
+    private final MeterRepository meterRepository;
+    private final MeterReadingRepository meterReadingRepository;
+    private final RatePlanRepository ratePlanRepository;
+    private final RateEngineService rateEngineService;
+    private final UsageBaselineService usageBaselineService;
+    private final ForecastCache forecastCache;
+    private final RecentReadingStore recentReadingStore;
+    private final long planTtlMillis;
+
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, MonthToDate> monthToDate = new ConcurrentHashMap<>();
+    private final Map<Customer.CustomerType, PricedPlan> plans = new ConcurrentHashMap<>();
+    // Committed readings seen per meter; never reset, so a load can compare before and after
+    private final Map<String, AtomicLong> changes = new ConcurrentHashMap<>();
+
+    public BillProjectionService(
+            CustomerRepository customerRepository,
+            MeterRepository meterRepository,
+            MeterReadingRepository meterReadingRepository,
+            RatePlanRepository ratePlanRepository,
+            RateEngineService rateEngineService,
+            UsageBaselineService usageBaselineService,
+            ForecastCache forecastCache,
+            RecentReadingStore recentReadingStore,
+            @Value("${app.bill-projection.plan-ttl-seconds:300}") long planTtlSeconds) {
+        this.customerRepository = customerRepository;
+        this.meterRepository = meterRepository;
+        this.meterReadingRepository = meterReadingRepository;
+        this.ratePlanRepository = ratePlanRepository;
+        this.rateEngineService = rateEngineService;
+        this.usageBaselineService = usageBaselineService;
+        this.forecastCache = forecastCache;
+        this.recentReadingStore = recentReadingStore;
+        this.planTtlMillis = planTtlSeconds * 1000;
+    }
+
+    /**
+     * Usage and charges so far in the current month, and projected for the whole month
+     */
+    public BillProjection project(String customerId) {
+        LocalDate today = LocalDate.now();
+        YearMonth month = YearMonth.from(today);
+        LocalDate periodStart = month.atDay(1);
+        LocalDate periodEnd = month.atEndOfMonth();
+
+        Account account = accounts.computeIfAbsent(customerId, this::loadAccount);
+        CompiledRatePlan plan = planFor(account.customerType(), periodStart);
+
+        double usageToDate = 0;
+        double remaining = 0;
+        LocalDate asOf = null;
+        ProjectionMethod method = ProjectionMethod.BASELINE;
+
+        for (String meterId : account.meterIds()) {
+            MonthToDate meter = currentMonth(meterId, month);
+            double meterUsage;
+            LocalDate lastReading;
+            synchronized (meter) {
+                meterUsage = meter.usage;
+                lastReading = meter.lastReadingDate;
+            }
+            usageToDate += meterUsage;
+            if (lastReading != null && (asOf == null || lastReading.isAfter(asOf))) {
+                asOf = lastReading;
+            }
+
+            LocalDate remainingFrom = lastReading != null ? lastReading.plusDays(1) : periodStart;
+            if (remainingFrom.isAfter(periodEnd)) continue;
+            long remainingDays = remainingFrom.until(periodEnd, ChronoUnit.DAYS) + 1;
+
+            SeasonalBaseline baseline = usageBaselineService.get(meterId);
+            if (baseline != null && baseline.covers(remainingFrom)) {
+                remaining += usageBaselineService.expectedUsage(meterId, remainingFrom, periodEnd);
+            } else if (lastReading != null) {
+                remaining += meterUsage / (periodStart.until(lastReading, ChronoUnit.DAYS) + 1) * remainingDays;
+                method = weaker(method, ProjectionMethod.RUN_RATE);
+            } else {
+                UsageForecast forecast = forecastCache.get(customerId);
+                if (forecast != null) {
+                    long forecastDays = forecast.getTargetPeriodStart()
+                            .until(forecast.getTargetPeriodEnd(), ChronoUnit.DAYS) + 1;
+                    remaining += forecast.getPredictedTotalCcf().doubleValue() / account.meterIds().size()
+                            / forecastDays * remainingDays;
+                    method = weaker(method, ProjectionMethod.FORECAST);
+                } else {
+                    method = weaker(method, ProjectionMethod.USAGE_TO_DATE_ONLY);
+                }
+            }
+        }
+
+        BigDecimal usageToDateCcf = BigDecimal.valueOf(usageToDate).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal remainingCcf = BigDecimal.valueOf(remaining).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal projectedCcf = usageToDateCcf.add(remainingCcf);
+        RateEngineService.ChargeBreakdown projectedCharges =
+                rateEngineService.calculateCharges(projectedCcf, plan, periodStart);
+
+        BillProjection projection = new BillProjection();
+        projection.setCustomerId(customerId);
+        projection.setPeriodStart(periodStart);
+        projection.setPeriodEnd(periodEnd);
+        projection.setAsOfDate(asOf);
+        projection.setUsageToDateCcf(usageToDateCcf);
+        projection.setProjectedRemainingCcf(remainingCcf);
+        projection.setProjectedTotalCcf(projectedCcf);
+        projection.setAmountToDate(rateEngineService.calculateCharges(usageToDateCcf, plan, periodStart).getTotalAmount());
+        projection.setProjectedAmount(projectedCharges.getTotalAmount());
+        projection.setProjectedCharges(projectedCharges);
+        projection.setMethod(method);
+        return projection;
+    }
+
+    /**
+     * Advance the accumulator of a meter already being projected; a reading at or before the last one
+     * seen (a late or corrected reading) drops it, so the next projection reloads the month
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingIngested(MeterReadingIngestedEvent event) {
+        if (event.usageCcf() == null) return;
+        changesOf(event.meterId()).incrementAndGet();
+
+        monthToDate.computeIfPresent(event.meterId(), (meterId, meter) -> {
+            synchronized (meter) {
+                if (!meter.month.equals(YearMonth.from(event.readingDate()))) return meter;
+                if (meter.lastReadingDate == null || event.readingDate().isAfter(meter.lastReadingDate)) {
+                    meter.usage += event.usageCcf().doubleValue();
+                    meter.lastReadingDate = event.readingDate();
+                    return meter;
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Drop cached accounts, accumulators and plans
+     * Scheduled daily at 1:15 AM, after the monthly usage rollup is reconciled
+     */
+    @Scheduled(cron = "0 15 1 * * *")
+    public void reset() {
+        log.info("Resetting bill projection state: {} customers, {} meters", accounts.size(), monthToDate.size());
+        accounts.clear();
+        monthToDate.clear();
+        plans.clear();
+    }
+
+    private Account loadAccount(String customerId) {
+        Customer customer = customerRepository.findById(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+        // Only active meters are billed, so only they are projected
+        List<String> meterIds = meterRepository.findByCustomerId(customerId).stream()
+                .filter(m -> m.getStatus() == Meter.Status.ACTIVE)
+                .map(Meter::getId)
+                .toList();
+        if (meterIds.isEmpty()) {
+            throw new RuntimeException("No active meters found for customer");
+        }
+        return new Account(customer.getCustomerType(), meterIds);
+    }
+
+    /**
+     * The meter's accumulator for the month, loaded if needed. A load is only kept if no reading for
+     * the meter was committed meanwhile; after a few such attempts the last load is used for this
+     * projection without being kept.
+     */
+    private MonthToDate currentMonth(String meterId, YearMonth month) {
+        for (int attempt = 1; ; attempt++) {
+            MonthToDate meter = monthToDate.get(meterId);
+            if (meter != null && meter.month.equals(month)) {
+                return meter;
+            }
+
+            AtomicLong meterChanges = changesOf(meterId);
+            long seen = meterChanges.get();
+            MonthToDate fresh = load(meterId, month);
+            MonthToDate current = monthToDate.compute(meterId, (id, existing) -> {
+                if (existing != null && existing.month.equals(month)) return existing;
+                return meterChanges.get() == seen ? fresh : existing;
+            });
+            if (current != null && current.month.equals(month)) {
+                return current;
+            }
+            if (attempt == MAX_LOAD_ATTEMPTS) {
+                return fresh;
+            }
+        }
+    }
+
+    private AtomicLong changesOf(String meterId) {
+        return changes.computeIfAbsent(meterId, id -> new AtomicLong());
+    }
+
+    /**
+     * Usage of a meter in a month through its latest reading, from the recent reading store when it
+     * covers the month
+     */
+    private MonthToDate load(String meterId, YearMonth month) {
+        MonthToDate fresh;
+        List<RecentReadingStore.DailyReading> recent = recentReadingStore.read(meterId, month.atDay(1), month.atEndOfMonth());
+        if (recent != null) {
+            double usage = 0;
+            for (RecentReadingStore.DailyReading reading : recent) {
+                usage += reading.usageCcf().doubleValue();
+            }
+            fresh = new MonthToDate(month, usage, recent.isEmpty() ? null : recent.get(recent.size() - 1).readingDate());
+        } else {
+            MeterReadingRepository.UsageToDate loaded =
+                    meterReadingRepository.usageToDate(meterId, month.atDay(1), month.atEndOfMonth());
+            fresh = new MonthToDate(month, loaded.getUsageCcf().doubleValue(), loaded.getLastReadingDate());
+        }
+        return fresh;
+    }
+
+    private CompiledRatePlan planFor(Customer.CustomerType customerType, LocalDate periodStart) {
+        PricedPlan cached = plans.get(customerType);
+        long now = System.currentTimeMillis();
+        if (cached != null && cached.periodStart().equals(periodStart) && now - cached.loadedAt() < planTtlMillis) {
+            return cached.plan();
+        }
+
+        RatePlan.CustomerTypeScope scope = customerType == Customer.CustomerType.RESIDENTIAL
+                ? RatePlan.CustomerTypeScope.RESIDENTIAL
+                : RatePlan.CustomerTypeScope.COMMERCIAL;
+        RatePlan ratePlan = ratePlanRepository.findActiveRatePlanForCustomerType(scope, periodStart)
+                .orElseThrow(() -> new RuntimeException("No active rate plan found"));
+        CompiledRatePlan plan = rateEngineService.compileCurrent(ratePlan);
+        plans.put(customerType, new PricedPlan(plan, periodStart, now));
+        return plan;
+    }
+
+    private static ProjectionMethod weaker(ProjectionMethod a, ProjectionMethod b) {
+        return a.ordinal() >= b.ordinal() ? a : b;
+    }
+
+    private record Account(Customer.CustomerType customerType, List<String> meterIds) {}
+
+    private record PricedPlan(CompiledRatePlan plan, LocalDate periodStart, long loadedAt) {}
+
+    /**
+     * Usage of one meter in one month through its latest reading
+     */
+    private static final class MonthToDate {
+        final YearMonth month;
+        double usage;
+        LocalDate lastReadingDate;
+
+        MonthToDate(YearMonth month, double usage, LocalDate lastReadingDate) {
+            this.month = month;
+            this.usage = usage;
+            this.lastReadingDate = lastReadingDate;
+        }
+    }
+
+    /**
+     * How the rest of the period was estimated, from best to weakest; a projection reports the
+     * weakest one used for any of the customer's meters
+     */
+    public enum ProjectionMethod {
+        BASELINE, RUN_RATE, FORECAST, USAGE_TO_DATE_ONLY
+    }
+
+    public static class BillProjection {
+        private String customerId;
+        private LocalDate periodStart;
+        private LocalDate periodEnd;
+        private LocalDate asOfDate;
+        private BigDecimal usageToDateCcf;
+        private BigDecimal projectedRemainingCcf;
+        private BigDecimal projectedTotalCcf;
+        private BigDecimal amountToDate;
+        private BigDecimal projectedAmount;
+        private RateEngineService.ChargeBreakdown projectedCharges;
+        private ProjectionMethod method;
+
+        // Getters and setters
+        public String getCustomerId() { return customerId; }
+        public void setCustomerId(String customerId) { this.customerId = customerId; }
+        public LocalDate getPeriodStart() { return periodStart; }
+        public void setPeriodStart(LocalDate periodStart) { this.periodStart = periodStart; }
+        public LocalDate getPeriodEnd() { return periodEnd; }
+        public void setPeriodEnd(LocalDate periodEnd) { this.periodEnd = periodEnd; }
+        public LocalDate getAsOfDate() { return asOfDate; }
+        public void setAsOfDate(LocalDate asOfDate) { this.asOfDate = asOfDate; }
+        public BigDecimal getUsageToDateCcf() { return usageToDateCcf; }
+        public void setUsageToDateCcf(BigDecimal usageToDateCcf) { this.usageToDateCcf = usageToDateCcf; }
+        public BigDecimal getProjectedRemainingCcf() { return projectedRemainingCcf; }
+        public void setProjectedRemainingCcf(BigDecimal projectedRemainingCcf) { this.projectedRemainingCcf = projectedRemainingCcf; }
+        public BigDecimal getProjectedTotalCcf() { return projectedTotalCcf; }
+        public void setProjectedTotalCcf(BigDecimal projectedTotalCcf) { this.projectedTotalCcf = projectedTotalCcf; }
+        public BigDecimal getAmountToDate() { return amountToDate; }
+        public void setAmountToDate(BigDecimal amountToDate) { this.amountToDate = amountToDate; }
+        public BigDecimal getProjectedAmount() { return projectedAmount; }
+        public void setProjectedAmount(BigDecimal projectedAmount) { this.projectedAmount = projectedAmount; }
+        public RateEngineService.ChargeBreakdown getProjectedCharges() { return projectedCharges; }
+        public void setProjectedCharges(RateEngineService.ChargeBreakdown projectedCharges) { this.projectedCharges = projectedCharges; }
+        public ProjectionMethod getMethod() { return method; }
+        public void setMethod(ProjectionMethod method) { this.method = method; }
+    }
+}
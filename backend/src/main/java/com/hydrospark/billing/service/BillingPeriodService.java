@@ -28,6 +28,7 @@ public class BillingPeriodService {
     private final BillRepository billRepository;
     private final BillLineItemRepository billLineItemRepository;
     private final RateEngineService rateEngineService;
+    private final RatePlanVersionService ratePlanVersionService;
     private final EmailService emailService;
 
     /**
@@ -152,28 +153,12 @@ public class BillingPeriodService {
         }
 
         // Calculate total usage across all meters
-        BigDecimal totalUsageCcf = BigDecimal.ZERO;
-        for (Meter meter : meters) {
-            BigDecimal meterUsage = meterReadingRepository.sumUsageByMeterAndDateRange(
-                    meter.getId(),
-                    period.getPeriodStartDate(),
-                    period.getPeriodEndDate()
-            );
-            if (meterUsage != null) {
-                totalUsageCcf = totalUsageCcf.add(meterUsage);
-            }
-        }
+        BigDecimal totalUsageCcf = calculatePeriodUsage(meters, period);
 
         // Get active rate plan for customer type
-        RatePlan.CustomerTypeScope customerTypeScope = customer.getCustomerType() == Customer.CustomerType.RESIDENTIAL
-                ? RatePlan.CustomerTypeScope.RESIDENTIAL
-                : RatePlan.CustomerTypeScope.COMMERCIAL;
+        RatePlan ratePlan = findActiveRatePlan(customer, period);
 
-        RatePlan ratePlan = ratePlanRepository.findActiveRatePlanForCustomerType(
-                customerTypeScope, period.getPeriodEndDate())
-                .orElseThrow(() -> new RuntimeException("No active rate plan found for customer type: " + customerTypeScope));
-
-        // Calculate charges using rate engine
+        // Calculate charges using rate engine (priced with the plan's current version)
         RateEngineService.ChargeBreakdown charges = rateEngineService.calculateCharges(
                 totalUsageCcf, ratePlan, period.getPeriodEndDate());
 
@@ -182,6 +167,8 @@ public class BillingPeriodService {
                 .customerId(customer.getId())
                 .meterId(meters.get(0).getId()) // Use first meter for reference
                 .billingPeriodId(period.getId())
+                .ratePlanVersionId(charges.getRatePlanVersionId())
+                .usageCcf(totalUsageCcf)
                 .issueDate(LocalDate.now())
                 .dueDate(period.getPeriodEndDate().plusDays(30)) // 30 days to pay
                 .status(Bill.Status.DRAFT)
@@ -201,6 +188,74 @@ public class BillingPeriodService {
         return bill;
     }
 
+    /**
+     * Re-price an existing bill exactly as it was billed, using the usage and rate plan version recorded
+     * on the bill. Older bills fall back to every meter the customer owns, as the rate impact replay
+     * counts them, and the version in force when the bill was created. Nothing is persisted.
+     */
+    @Transactional(readOnly = true)
+    public RateEngineService.ChargeBreakdown repriceBill(String billId) {
+        Bill bill = billRepository.findById(billId)
+                .orElseThrow(() -> new RuntimeException("Bill not found"));
+        BillingPeriod period = billingPeriodRepository.findById(bill.getBillingPeriodId())
+                .orElseThrow(() -> new RuntimeException("Billing period not found"));
+        Customer customer = customerRepository.findById(bill.getCustomerId())
+                .orElseThrow(() -> new RuntimeException("Customer not found"));
+
+        BigDecimal totalUsageCcf = bill.getUsageCcf() != null
+                ? bill.getUsageCcf()
+                : calculatePeriodUsage(meterRepository.findByCustomerId(customer.getId()), period);
+
+        String versionId = bill.getRatePlanVersionId();
+        if (versionId == null) {
+            RatePlan ratePlan = findRatePlanInEffect(customer, period);
+            versionId = ratePlanVersionService.versionAsOf(ratePlan.getId(), bill.getCreatedAt()).getId();
+        }
+
+        return rateEngineService.calculateChargesForVersion(
+                totalUsageCcf, versionId, period.getPeriodEndDate(), false);
+    }
+
+    private BigDecimal calculatePeriodUsage(List<Meter> meters, BillingPeriod period) {
+        BigDecimal totalUsageCcf = BigDecimal.ZERO;
+        for (Meter meter : meters) {
+            BigDecimal meterUsage = meterReadingRepository.sumUsageByMeterAndDateRange(
+                    meter.getId(),
+                    period.getPeriodStartDate(),
+                    period.getPeriodEndDate()
+            );
+            if (meterUsage != null) {
+                totalUsageCcf = totalUsageCcf.add(meterUsage);
+            }
+        }
+        return totalUsageCcf;
+    }
+
+    private RatePlan findActiveRatePlan(Customer customer, BillingPeriod period) {
+        RatePlan.CustomerTypeScope customerTypeScope = customer.getCustomerType() == Customer.CustomerType.RESIDENTIAL
+                ? RatePlan.CustomerTypeScope.RESIDENTIAL
+                : RatePlan.CustomerTypeScope.COMMERCIAL;
+
+        return ratePlanRepository.findActiveRatePlanForCustomerType(
+                customerTypeScope, period.getPeriodEndDate())
+                .orElseThrow(() -> new RuntimeException("No active rate plan found for customer type: " + customerTypeScope));
+    }
+
+    /**
+     * Plan that applied to the customer at the end of the period, even if it has been retired since
+     */
+    private RatePlan findRatePlanInEffect(Customer customer, BillingPeriod period) {
+        RatePlan.CustomerTypeScope customerTypeScope = customer.getCustomerType() == Customer.CustomerType.RESIDENTIAL
+                ? RatePlan.CustomerTypeScope.RESIDENTIAL
+                : RatePlan.CustomerTypeScope.COMMERCIAL;
+
+        return ratePlanRepository.findPlansInEffectForCustomerType(customerTypeScope, period.getPeriodEndDate())
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("No rate plan was in effect for customer type "
+                        + customerTypeScope + " on " + period.getPeriodEndDate()));
+    }
+
     /**
      * Create bill line items from charge breakdown
      */
@@ -0,0 +1,146 @@
+package com.hydrospark.billing.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of calculated charges keyed by (plan version, usage, billing month).
+ * Billing month is part of the key because SEASONAL_MULTIPLIER depends on it.
+ * Cached breakdowns are shared between callers and must be treated as read-only.
+ */
+@Component
+@Slf4j
+public class ChargeCalculationCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final LinkedHashMap<Key, RateEngineService.ChargeBreakdown> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ChargeCalculationCache(
+            @Value("${app.rate-engine.cache.enabled:true}") boolean enabled,
+            @Value("${app.rate-engine.cache.max-entries:50000}") int maxEntries) {
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, RateEngineService.ChargeBreakdown> eldest) {
+                if (size() > ChargeCalculationCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the cached breakdown for these inputs, calculating and storing it on a miss
+     */
+    public RateEngineService.ChargeBreakdown get(String ratePlanId, String ratePlanVersionId,
+                                                 BigDecimal usageCcf, int billingMonth,
+                                                 Supplier<RateEngineService.ChargeBreakdown> calculator) {
+        Key key = enabled ? Key.of(ratePlanId, ratePlanVersionId, usageCcf, billingMonth) : null;
+        if (key == null) {
+            return calculator.get();
+        }
+
+        RateEngineService.ChargeBreakdown cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        RateEngineService.ChargeBreakdown calculated = calculator.get();
+        synchronized (entries) {
+            entries.put(key, calculated);
+        }
+        return calculated;
+    }
+
+    /**
+     * Drop every cached result for any version of a plan (called when the plan is updated or deleted)
+     */
+    public void invalidatePlan(String ratePlanId) {
+        int removed;
+        synchronized (entries) {
+            int before = entries.size();
+            entries.keySet().removeIf(k -> k.ratePlanId.equals(ratePlanId));
+            removed = before - entries.size();
+        }
+        log.debug("Invalidated {} cached charge calculations for plan {}", removed, ratePlanId);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public CacheStats stats() {
+        CacheStats stats = new CacheStats();
+        synchronized (entries) {
+            stats.setSize(entries.size());
+        }
+        stats.setMaxEntries(maxEntries);
+        stats.setHits(hits.sum());
+        stats.setMisses(misses.sum());
+        stats.setEvictions(evictions.sum());
+        return stats;
+    }
+
+    /**
+     * Usage is keyed at 0.01 CCF; values with finer precision are not cached
+     */
+    private record Key(String ratePlanId, String ratePlanVersionId, long usageHundredths, int month) {
+        static Key of(String ratePlanId, String ratePlanVersionId, BigDecimal usageCcf, int month) {
+            if (ratePlanId == null || ratePlanVersionId == null || usageCcf == null) return null;
+            BigDecimal scaled = usageCcf.stripTrailingZeros();
+            if (scaled.scale() > 2) return null;
+            try {
+                return new Key(ratePlanId, ratePlanVersionId, usageCcf.movePointRight(2).longValueExact(), month);
+            } catch (ArithmeticException e) {
+                return null;
+            }
+        }
+    }
+
+    public static class CacheStats {
+        private long size;
+        private long maxEntries;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        // Getters and setters
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+        public long getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(long maxEntries) { this.maxEntries = maxEntries; }
+        public long getHits() { return hits; }
+        public void setHits(long hits) { this.hits = hits; }
+        public long getMisses() { return misses; }
+        public void setMisses(long misses) { this.misses = misses; }
+        public long getEvictions() { return evictions; }
+        public void setEvictions(long evictions) { this.evictions = evictions; }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hydrospark.billing.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Full record of one charge calculation: every component evaluated, in order,
+ * with the amount it contributed. Only built for sampled or requested calculations.
+ */
+public class ChargeTrace {
+    private String ratePlanId;
+    private String ratePlanVersionId;
+    private String ratePlanName;
+    private BigDecimal usageCcf;
+    private LocalDate billingDate;
+    private BigDecimal totalAmount;
+    private long elapsedNanos;
+    private boolean requested;
+    private LocalDateTime recordedAt = LocalDateTime.now();
+    private List<Step> steps = new ArrayList<>();
+
+    public void addStep(String component, String componentType, BigDecimal amount, String detail) {
+        steps.add(new Step(component, componentType, amount, detail));
+    }
+
+    // Getters and setters
+    public String getRatePlanId() { return ratePlanId; }
+    public void setRatePlanId(String ratePlanId) { this.ratePlanId = ratePlanId; }
+    public String getRatePlanVersionId() { return ratePlanVersionId; }
+    public void setRatePlanVersionId(String ratePlanVersionId) { this.ratePlanVersionId = ratePlanVersionId; }
+    public String getRatePlanName() { return ratePlanName; }
+    public void setRatePlanName(String ratePlanName) { this.ratePlanName = ratePlanName; }
+    public BigDecimal getUsageCcf() { return usageCcf; }
+    public void setUsageCcf(BigDecimal usageCcf) { this.usageCcf = usageCcf; }
+    public LocalDate getBillingDate() { return billingDate; }
+    public void setBillingDate(LocalDate billingDate) { this.billingDate = billingDate; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public void setElapsedNanos(long elapsedNanos) { this.elapsedNanos = elapsedNanos; }
+    public boolean isRequested() { return requested; }
+    public void setRequested(boolean requested) { this.requested = requested; }
+    public LocalDateTime getRecordedAt() { return recordedAt; }
+    public List<Step> getSteps() { return steps; }
+
+    public static class Step {
+        private final String component;
+        private final String componentType;
+        private final BigDecimal amount;
+        private final String detail;
+
+        public Step(String component, String componentType, BigDecimal amount, String detail) {
+            this.component = component;
+            this.componentType = componentType;
+            this.amount = amount;
+            this.detail = detail;
+        }
+
+        public String getComponent() { return component; }
+        public String getComponentType() { return componentType; }
+        public BigDecimal getAmount() { return amount; }
+        public String getDetail() { return detail; }
+    }
+}
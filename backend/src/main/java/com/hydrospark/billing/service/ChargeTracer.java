@@ -0,0 +1,129 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.RateComponent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cheap, always-on counters for the rate engine plus sampled full traces.
+ * Nothing here logs per calculation, so billing throughput does not depend on log level;
+ * only sampled traces are written to the log.
+ */
+@Component
+@Slf4j
+public class ChargeTracer {
+
+    private static final RateComponent.ComponentType[] TYPES = RateComponent.ComponentType.values();
+
+    private final long sampleEvery;
+    private final int bufferSize;
+
+    private final AtomicLong calculationSeq = new AtomicLong();
+    private final LongAdder[] evaluationsByType = new LongAdder[TYPES.length];
+    private final Map<String, PlanCounters> byPlan = new ConcurrentHashMap<>();
+    private final Deque<ChargeTrace> recentTraces = new ArrayDeque<>();
+
+    public ChargeTracer(
+            @Value("${app.rate-engine.trace.sample-every:10000}") long sampleEvery,
+            @Value("${app.rate-engine.trace.buffer-size:100}") int bufferSize) {
+        this.sampleEvery = sampleEvery;
+        this.bufferSize = Math.max(0, bufferSize);
+        for (int i = 0; i < TYPES.length; i++) {
+            evaluationsByType[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Count a calculation request for a plan and decide whether it should be sampled.
+     * A sample rate of 0 disables sampling.
+     */
+    public boolean recordCalculation(String ratePlanId) {
+        plan(ratePlanId).calculations.increment();
+        return sampleEvery > 0 && calculationSeq.incrementAndGet() % sampleEvery == 0;
+    }
+
+    /**
+     * Count an actual evaluation (cache miss) of a compiled plan
+     */
+    public void recordEvaluation(CompiledRatePlan plan) {
+        plan(plan.getRatePlanId()).evaluations.increment();
+        for (CompiledRatePlan.Step step : plan.getSteps()) {
+            evaluationsByType[step.getType().ordinal()].increment();
+        }
+    }
+
+    public void recordTrace(ChargeTrace trace) {
+        if (!trace.isRequested()) {
+            log.info("Sampled charge trace: plan={} usage={} date={} total=${} steps={} elapsed={}us",
+                    trace.getRatePlanName(), trace.getUsageCcf(), trace.getBillingDate(),
+                    trace.getTotalAmount(), trace.getSteps().size(), trace.getElapsedNanos() / 1000);
+        }
+        if (bufferSize == 0) return;
+
+        synchronized (recentTraces) {
+            recentTraces.addLast(trace);
+            while (recentTraces.size() > bufferSize) {
+                recentTraces.removeFirst();
+            }
+        }
+    }
+
+    public TraceStats stats() {
+        TraceStats stats = new TraceStats();
+        stats.setSampleEvery(sampleEvery);
+
+        Map<String, Long> types = new LinkedHashMap<>();
+        for (int i = 0; i < TYPES.length; i++) {
+            types.put(TYPES[i].name(), evaluationsByType[i].sum());
+        }
+        stats.setEvaluationsByComponentType(types);
+
+        Map<String, Map<String, Long>> plans = new LinkedHashMap<>();
+        byPlan.forEach((planId, counters) -> plans.put(planId, Map.of(
+                "calculations", counters.calculations.sum(),
+                "evaluations", counters.evaluations.sum())));
+        stats.setByPlan(plans);
+
+        synchronized (recentTraces) {
+            stats.setRecentTraces(new ArrayList<>(recentTraces));
+        }
+        return stats;
+    }
+
+    private PlanCounters plan(String ratePlanId) {
+        return byPlan.computeIfAbsent(ratePlanId, id -> new PlanCounters());
+    }
+
+    private static class PlanCounters {
+        final LongAdder calculations = new LongAdder();
+        final LongAdder evaluations = new LongAdder();
+    }
+
+    public static class TraceStats {
+        private long sampleEvery;
+        private Map<String, Long> evaluationsByComponentType;
+        private Map<String, Map<String, Long>> byPlan;
+        private List<ChargeTrace> recentTraces;
+
+        // Getters and setters
+        public long getSampleEvery() { return sampleEvery; }
+        public void setSampleEvery(long sampleEvery) { this.sampleEvery = sampleEvery; }
+        public Map<String, Long> getEvaluationsByComponentType() { return evaluationsByComponentType; }
+        public void setEvaluationsByComponentType(Map<String, Long> evaluationsByComponentType) { this.evaluationsByComponentType = evaluationsByComponentType; }
+        public Map<String, Map<String, Long>> getByPlan() { return byPlan; }
+        public void setByPlan(Map<String, Map<String, Long>> byPlan) { this.byPlan = byPlan; }
+        public List<ChargeTrace> getRecentTraces() { return recentTraces; }
+        public void setRecentTraces(List<ChargeTrace> recentTraces) { this.recentTraces = recentTraces; }
+    }
+}
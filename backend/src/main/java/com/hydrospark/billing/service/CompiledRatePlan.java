@@ -0,0 +1,257 @@
+package com.hydrospark.billing.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hydrospark.billing.model.RateComponent;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rate plan with its component configs parsed once, so the same plan can be
+ * priced against many usage values without re-reading or re-parsing JSON.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class CompiledRatePlan {
+
+    private final String ratePlanId;
+    private final String ratePlanVersionId;
+    private final String ratePlanName;
+    private final List<Step> steps;
+
+    private CompiledRatePlan(String ratePlanId, String ratePlanVersionId, String ratePlanName, List<Step> steps) {
+        this.ratePlanId = ratePlanId;
+        this.ratePlanVersionId = ratePlanVersionId;
+        this.ratePlanName = ratePlanName;
+        this.steps = steps;
+    }
+
+    /**
+     * Parse active components (already in sort order) into a compiled plan.
+     * {@code ratePlanVersionId} is null when compiling live, unversioned components.
+     */
+    public static CompiledRatePlan compile(String ratePlanId, String ratePlanVersionId, String ratePlanName,
+                                           List<RateComponent> components, ObjectMapper objectMapper) {
+        List<Step> steps = new ArrayList<>(components.size());
+
+        for (RateComponent component : components) {
+            try {
+                JsonNode config = objectMapper.readTree(component.getConfigJson());
+                steps.add(compileStep(component, config));
+            } catch (Exception e) {
+                throw new RuntimeException("Error calculating charges: " + e.getMessage());
+            }
+        }
+
+        return new CompiledRatePlan(ratePlanId, ratePlanVersionId, ratePlanName, List.copyOf(steps));
+    }
+
+    public String getRatePlanId() { return ratePlanId; }
+    public String getRatePlanVersionId() { return ratePlanVersionId; }
+    public String getRatePlanName() { return ratePlanName; }
+    public List<Step> getSteps() { return steps; }
+
+    /**
+     * Price a usage amount. Produces the same breakdown as evaluating the
+     * component JSON directly.
+     */
+    public RateEngineService.ChargeBreakdown calculate(BigDecimal usageCcf, LocalDate billingDate) {
+        return calculate(usageCcf, billingDate, null);
+    }
+
+    /**
+     * Price a usage amount, recording each evaluated component into {@code trace} when it is not null
+     */
+    public RateEngineService.ChargeBreakdown calculate(BigDecimal usageCcf, LocalDate billingDate, ChargeTrace trace) {
+        RateEngineService.ChargeBreakdown breakdown = new RateEngineService.ChargeBreakdown();
+        breakdown.setUsageCcf(usageCcf);
+        breakdown.setRatePlanName(ratePlanName);
+        breakdown.setRatePlanVersionId(ratePlanVersionId);
+
+        int month = billingDate.getMonthValue();
+        BigDecimal usageCharge = BigDecimal.ZERO;
+        BigDecimal baseFee = BigDecimal.ZERO;
+        BigDecimal totalSurcharges = BigDecimal.ZERO;
+
+        for (Step step : steps) {
+            switch (step.type) {
+                case TIERED_USAGE -> {
+                    BigDecimal tierCharge = step.tieredCharge(usageCcf);
+                    usageCharge = usageCharge.add(tierCharge);
+                    breakdown.addLineItem(step.name, tierCharge, "Usage charge");
+                    if (trace != null) trace.addStep(step.name, step.type.name(), tierCharge,
+                            step.tierRate.length + " tiers on " + usageCcf + " CCF");
+                }
+                case FIXED_FEE -> {
+                    baseFee = baseFee.add(step.amount);
+                    breakdown.addLineItem(step.name, step.amount, "Fixed fee");
+                    if (trace != null) trace.addStep(step.name, step.type.name(), step.amount, "Fixed fee");
+                }
+                case SEASONAL_MULTIPLIER -> {
+                    if (step.appliesInMonth(month) && step.amount.compareTo(BigDecimal.ONE) > 0) {
+                        BigDecimal seasonalCharge = usageCharge.multiply(step.amount.subtract(BigDecimal.ONE));
+                        usageCharge = usageCharge.add(seasonalCharge);
+                        breakdown.addLineItem(step.name, seasonalCharge,
+                                "Seasonal adjustment (" + step.amount + "x)");
+                        if (trace != null) trace.addStep(step.name, step.type.name(), seasonalCharge,
+                                step.amount + "x applied in month " + month);
+                    } else if (trace != null) {
+                        trace.addStep(step.name, step.type.name(), BigDecimal.ZERO,
+                                "Not applied in month " + month);
+                    }
+                }
+                case SURCHARGE_PERCENT -> {
+                    BigDecimal percentSurcharge = usageCharge.add(baseFee).multiply(step.amount)
+                            .setScale(2, RoundingMode.HALF_UP);
+                    totalSurcharges = totalSurcharges.add(percentSurcharge);
+                    breakdown.addLineItem(step.name, percentSurcharge, "Surcharge");
+                    if (trace != null) trace.addStep(step.name, step.type.name(), percentSurcharge,
+                            step.amount + " of " + usageCharge.add(baseFee));
+                }
+                case SURCHARGE_FLAT -> {
+                    totalSurcharges = totalSurcharges.add(step.amount);
+                    breakdown.addLineItem(step.name, step.amount, "Surcharge");
+                    if (trace != null) trace.addStep(step.name, step.type.name(), step.amount, "Flat surcharge");
+                }
+            }
+        }
+
+        breakdown.setUsageCharge(usageCharge);
+        breakdown.setBaseFee(baseFee);
+        breakdown.setTotalSurcharges(totalSurcharges);
+        breakdown.setSubtotal(usageCharge.add(baseFee));
+        breakdown.setTotalAmount(usageCharge.add(baseFee).add(totalSurcharges));
+
+        return breakdown;
+    }
+
+    private static Step compileStep(RateComponent component, JsonNode config) {
+        RateComponent.ComponentType type = component.getComponentType();
+        if (type == null) {
+            throw new RuntimeException("Unknown component type for " + component.getName());
+        }
+
+        return switch (type) {
+            case TIERED_USAGE -> compileTiers(component.getName(), config);
+            case FIXED_FEE -> {
+                if (!config.has("amount")) {
+                    throw new RuntimeException("Fixed fee missing 'amount' field");
+                }
+                yield new Step(type, component.getName(), money(config.get("amount")), null, null, null, null);
+            }
+            case SEASONAL_MULTIPLIER -> {
+                if (!config.has("applies_months") || !config.has("multiplier")) {
+                    throw new RuntimeException("Seasonal multiplier missing required fields");
+                }
+                boolean[] months = new boolean[13];
+                for (JsonNode month : config.get("applies_months")) {
+                    int m = month.asInt();
+                    if (m >= 1 && m <= 12) months[m] = true;
+                }
+                BigDecimal multiplier = BigDecimal.valueOf(config.get("multiplier").asDouble());
+                yield new Step(type, component.getName(), multiplier, null, null, null, months);
+            }
+            case SURCHARGE_PERCENT -> {
+                if (!config.has("percent")) {
+                    throw new RuntimeException("Percent surcharge missing 'percent' field");
+                }
+                BigDecimal percent = BigDecimal.valueOf(config.get("percent").asDouble());
+                yield new Step(type, component.getName(), percent, null, null, null, null);
+            }
+            case SURCHARGE_FLAT -> {
+                if (!config.has("amount")) {
+                    throw new RuntimeException("Flat surcharge missing 'amount' field");
+                }
+                yield new Step(type, component.getName(), money(config.get("amount")), null, null, null, null);
+            }
+        };
+    }
+
+    private static Step compileTiers(String name, JsonNode config) {
+        JsonNode tiers = config.get("tiers");
+        if (tiers == null || !tiers.isArray()) {
+            throw new RuntimeException("Invalid tiered usage configuration");
+        }
+
+        int n = tiers.size();
+        BigDecimal[] upTo = new BigDecimal[n];
+        BigDecimal[] capacity = new BigDecimal[n];
+        BigDecimal[] rate = new BigDecimal[n];
+
+        // Lower bound of each tier is the last bounded up_to seen before it
+        BigDecimal tierMin = BigDecimal.ZERO;
+        for (int i = 0; i < n; i++) {
+            JsonNode tier = tiers.get(i);
+            boolean bounded = tier.has("up_to") && !tier.get("up_to").isNull();
+
+            upTo[i] = bounded ? BigDecimal.valueOf(tier.get("up_to").asDouble()) : null;
+            rate[i] = BigDecimal.valueOf(tier.get("rate_per_ccf").asDouble());
+            capacity[i] = bounded ? upTo[i].subtract(tierMin) : null;
+
+            if (bounded) {
+                tierMin = upTo[i];
+            }
+        }
+
+        return new Step(RateComponent.ComponentType.TIERED_USAGE, name, null, capacity, rate, upTo, null);
+    }
+
+    private static BigDecimal money(JsonNode node) {
+        return BigDecimal.valueOf(node.asDouble()).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * One parsed rate component. Only the fields relevant to its type are set.
+     */
+    public static final class Step {
+        private final RateComponent.ComponentType type;
+        private final String name;
+        private final BigDecimal amount;
+        private final BigDecimal[] tierCapacity;
+        private final BigDecimal[] tierRate;
+        private final BigDecimal[] tierUpTo;
+        private final boolean[] months;
+
+        private Step(RateComponent.ComponentType type, String name, BigDecimal amount,
+                     BigDecimal[] tierCapacity, BigDecimal[] tierRate, BigDecimal[] tierUpTo,
+                     boolean[] months) {
+            this.type = type;
+            this.name = name;
+            this.amount = amount;
+            this.tierCapacity = tierCapacity;
+            this.tierRate = tierRate;
+            this.tierUpTo = tierUpTo;
+            this.months = months;
+        }
+
+        public RateComponent.ComponentType getType() { return type; }
+        public String getName() { return name; }
+
+        boolean appliesInMonth(int month) {
+            return months[month];
+        }
+
+        BigDecimal tieredCharge(BigDecimal usageCcf) {
+            BigDecimal totalCharge = BigDecimal.ZERO;
+            BigDecimal remainingUsage = usageCcf;
+
+            for (int i = 0; i < tierRate.length; i++) {
+                if (remainingUsage.compareTo(BigDecimal.ZERO) <= 0) {
+                    break;
+                }
+
+                BigDecimal tierUsage = tierUpTo[i] == null
+                        ? remainingUsage
+                        : remainingUsage.min(tierCapacity[i]);
+
+                totalCharge = totalCharge.add(tierUsage.multiply(tierRate[i]));
+                remainingUsage = remainingUsage.subtract(tierUsage);
+            }
+
+            return totalCharge.setScale(2, RoundingMode.HALF_UP);
+        }
+    }
+}
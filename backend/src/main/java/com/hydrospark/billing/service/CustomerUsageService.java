@@ -0,0 +1,142 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.dto.MeterReadingDTO;
+import com.hydrospark.billing.dto.UsagePointDTO;
+import com.hydrospark.billing.model.CustomerMonthlyUsage;
+import com.hydrospark.billing.repository.CustomerMonthlyUsageRepository;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads across all of a customer's meters with one query, either as individual readings or summed
+ * into daily, weekly or monthly buckets for charts
+ */
+@Service
+@RequiredArgsConstructor
+public class CustomerUsageService {
+
+    private final MeterReadingRepository meterReadingRepository;
+    private final CustomerMonthlyUsageRepository customerMonthlyUsageRepository;
+
+    public enum Granularity {
+        DAILY, WEEKLY, MONTHLY;
+
+        LocalDate bucketStart(LocalDate date) {
+            return switch (this) {
+                case DAILY -> date;
+                case WEEKLY -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTHLY -> date.withDayOfMonth(1);
+            };
+        }
+
+        LocalDate bucketEnd(LocalDate bucketStart) {
+            return switch (this) {
+                case DAILY -> bucketStart;
+                case WEEKLY -> bucketStart.plusDays(6);
+                case MONTHLY -> bucketStart.with(TemporalAdjusters.lastDayOfMonth());
+            };
+        }
+    }
+
+    /**
+     * Readings of every meter of a customer for a date range, ordered by meter then date, mapped to DTOs
+     * as rows stream in rather than through managed entities
+     */
+    @Transactional(readOnly = true)
+    public List<MeterReadingDTO> customerReadings(String customerId, LocalDate startDate, LocalDate endDate) {
+        try (Stream<MeterReadingRepository.StoredReading> rows =
+                     meterReadingRepository.streamCustomerReadings(customerId, startDate, endDate)) {
+            return rows.map(row -> MeterReadingDTO.builder()
+                            .id(row.getId())
+                            .meterId(row.getMeterId())
+                            .readingDate(row.getReadingDate())
+                            .usageCcf(row.getUsageCcf())
+                            .source(row.getSource() != null ? row.getSource().name() : null)
+                            .ingestedAt(row.getIngestedAt())
+                            .build())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Customer usage summed per bucket. The database sums per day; days are folded into weeks (starting
+     * Monday) or calendar months here. Buckets are clipped to the range and buckets without readings
+     * are left out. Monthly buckets that cover a whole month are read from the customer rollup.
+     */
+    @Transactional(readOnly = true)
+    public List<UsagePointDTO> customerUsage(String customerId, LocalDate startDate, LocalDate endDate,
+                                             Granularity granularity) {
+        List<UsagePointDTO> points = new ArrayList<>();
+        if (granularity != Granularity.MONTHLY) {
+            addDailyBuckets(points, customerId, startDate, endDate, granularity);
+            return points;
+        }
+
+        LocalDate firstWhole = startDate.getDayOfMonth() == 1
+                ? startDate : startDate.with(TemporalAdjusters.firstDayOfNextMonth());
+        LocalDate lastWholeEnd = endDate.equals(endDate.with(TemporalAdjusters.lastDayOfMonth()))
+                ? endDate : endDate.withDayOfMonth(1).minusDays(1);
+        if (firstWhole.isAfter(lastWholeEnd)) {
+            addDailyBuckets(points, customerId, startDate, endDate, granularity);
+            return points;
+        }
+
+        if (startDate.isBefore(firstWhole)) {
+            addDailyBuckets(points, customerId, startDate, firstWhole.minusDays(1), granularity);
+        }
+        for (CustomerMonthlyUsage month : customerMonthlyUsageRepository
+                .findByCustomerIdAndMonthStartBetweenOrderByMonthStartAsc(
+                        customerId, firstWhole, lastWholeEnd.withDayOfMonth(1))) {
+            if (month.getReadingCount() == null || month.getReadingCount() == 0) continue;
+            points.add(UsagePointDTO.builder()
+                    .periodStart(month.getMonthStart())
+                    .periodEnd(month.getMonthStart().with(TemporalAdjusters.lastDayOfMonth()))
+                    .usageCcf(month.getUsageCcf())
+                    .readings(month.getReadingCount())
+                    .build());
+        }
+        if (endDate.isAfter(lastWholeEnd)) {
+            addDailyBuckets(points, customerId, lastWholeEnd.plusDays(1), endDate, granularity);
+        }
+        return points;
+    }
+
+    /**
+     * Fold the customer's daily sums over a range into buckets, appending them to points
+     */
+    private void addDailyBuckets(List<UsagePointDTO> points, String customerId, LocalDate startDate,
+                                 LocalDate endDate, Granularity granularity) {
+        UsagePointDTO current = null;
+
+        for (MeterReadingRepository.DailyTotal day :
+                meterReadingRepository.sumDailyUsageByCustomer(customerId, startDate, endDate)) {
+            LocalDate bucketStart = granularity.bucketStart(day.getReadingDate());
+            if (bucketStart.isBefore(startDate)) {
+                bucketStart = startDate;
+            }
+
+            if (current == null || !current.getPeriodStart().equals(bucketStart)) {
+                LocalDate bucketEnd = granularity.bucketEnd(granularity.bucketStart(day.getReadingDate()));
+                current = UsagePointDTO.builder()
+                        .periodStart(bucketStart)
+                        .periodEnd(bucketEnd.isAfter(endDate) ? endDate : bucketEnd)
+                        .usageCcf(BigDecimal.ZERO)
+                        .build();
+                points.add(current);
+            }
+            current.setUsageCcf(current.getUsageCcf().add(day.getUsageCcf()));
+            current.setReadings(current.getReadings() + day.getReadings());
+        }
+    }
+}
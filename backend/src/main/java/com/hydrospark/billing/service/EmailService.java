@@ -15,6 +15,8 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -123,7 +125,7 @@ public class EmailService {
             helper.setTo(email);
             helper.setSubject("Water Usage Alert - " + appName);
 
-            String emailBody = buildAnomalyAlertEmailBody(customerName, anomalyDescription);
+            String emailBody = buildAnomalyAlertEmailBody(customerName, List.of(anomalyDescription));
             helper.setText(emailBody, true);
 
             mailSender.send(message);
@@ -135,6 +137,26 @@ public class EmailService {
         }
     }
 
+    /**
+     * Send one alert email covering several anomalies. Throws on failure so the caller can retry.
+     */
+    public void sendAnomalyDigestEmail(String email, String customerName, List<String> anomalyDescriptions)
+            throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setFrom(fromEmail);
+        helper.setTo(email);
+        helper.setSubject(anomalyDescriptions.size() == 1
+                ? "Water Usage Alert - " + appName
+                : anomalyDescriptions.size() + " Water Usage Alerts - " + appName);
+        helper.setText(buildAnomalyAlertEmailBody(customerName, anomalyDescriptions), true);
+
+        mailSender.send(message);
+
+        log.info("Anomaly digest email ({} alerts) sent to {}", anomalyDescriptions.size(), email);
+    }
+
     /**
      * Send simple text email
      */
@@ -283,7 +305,15 @@ public class EmailService {
             """.formatted(resetToken, appName);
     }
 
-    private String buildAnomalyAlertEmailBody(String customerName, String anomalyDescription) {
+    private String buildAnomalyAlertEmailBody(String customerName, List<String> anomalyDescriptions) {
+        String alerts = anomalyDescriptions.stream()
+                .map("""
+                    <div style="background-color: #fff3cd; border-left: 4px solid #ffc107; padding: 15px; margin: 20px 0;">
+                        <p style="margin: 0;"><strong>Alert:</strong> %s</p>
+                    </div>
+                    """::formatted)
+                .collect(Collectors.joining());
+
         return """
             <!DOCTYPE html>
             <html>
@@ -295,9 +325,7 @@ public class EmailService {
                     
                     <p>We've detected unusual water usage activity on your account:</p>
                     
-                    <div style="background-color: #fff3cd; border-left: 4px solid #ffc107; padding: 15px; margin: 20px 0;">
-                        <p style="margin: 0;"><strong>Alert:</strong> %s</p>
-                    </div>
+                    %s
                     
                     <p>This could indicate:</p>
                     <ul>
@@ -314,7 +342,7 @@ public class EmailService {
                 </div>
             </body>
             </html>
-            """.formatted(customerName, anomalyDescription, appName);
+            """.formatted(customerName, alerts, appName);
     }
 
     private String formatCurrency(BigDecimal amount) {
@@ -0,0 +1,339 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.model.RatePlan;
+import com.hydrospark.billing.model.UsageForecast;
+import com.hydrospark.billing.repository.CustomerRepository;
+import com.hydrospark.billing.repository.MeterMonthlyUsageRepository;
+import com.hydrospark.billing.repository.MeterRepository;
+import com.hydrospark.billing.repository.RatePlanRepository;
+import com.hydrospark.billing.repository.UsageForecastRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Regenerates next month's forecast for every customer of a billing cycle in one pass.
+ *
+ * The cycle's customer ids are split into ranges that a worker pool processes independently. Each
+ * range streams the history months of its customers' active meters from the meter_monthly_usage
+ * rollup, predicts each meter as soon as its months have gone by, sums the customer's meters once the
+ * customer has gone by and prices the total against the rate plan of the customer type (resolved and
+ * compiled once per run), like a bill. Forecasts are inserted in batches. A range first removes the
+ * forecasts it is about to replace, so a rerun leaves one forecast per customer and target month.
+ */
+@Service
+@Slf4j
+public class ForecastBatchService {
+
+    private static final int PARTITIONS_PER_WORKER = 4;
+
+    private final ForecastService forecastService;
+    private final ForecastCache forecastCache;
+    private final RateEngineService rateEngineService;
+    private final RatePlanRepository ratePlanRepository;
+    private final CustomerRepository customerRepository;
+    private final MeterRepository meterRepository;
+    private final MeterMonthlyUsageRepository monthlyUsageRepository;
+    private final UsageForecastRepository usageForecastRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int parallelism;
+    private final int writeBatchSize;
+
+    public ForecastBatchService(
+            ForecastService forecastService,
+            ForecastCache forecastCache,
+            RateEngineService rateEngineService,
+            RatePlanRepository ratePlanRepository,
+            CustomerRepository customerRepository,
+            MeterRepository meterRepository,
+            MeterMonthlyUsageRepository monthlyUsageRepository,
+            UsageForecastRepository usageForecastRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.forecast.parallelism:1}") int parallelism,
+            @Value("${app.forecast.write-batch-size:500}") int writeBatchSize) {
+        this.forecastService = forecastService;
+        this.forecastCache = forecastCache;
+        this.rateEngineService = rateEngineService;
+        this.ratePlanRepository = ratePlanRepository;
+        this.customerRepository = customerRepository;
+        this.meterRepository = meterRepository;
+        this.monthlyUsageRepository = monthlyUsageRepository;
+        this.usageForecastRepository = usageForecastRepository;
+        this.parallelism = Math.max(1, parallelism);
+        this.writeBatchSize = Math.max(1, writeBatchSize);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Writes must not share the connection of a streaming read
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Refresh next month's forecasts for every billing cycle
+     * Scheduled to run daily at 3:00 AM
+     */
+    @Scheduled(cron = "0 0 3 * * *")
+    public void refreshAllCycles() {
+        for (Integer cycleNumber : customerRepository.findBillingCycleNumbers()) {
+            if (cycleNumber == null) continue;
+            try {
+                generateCycleForecasts(cycleNumber);
+            } catch (Exception e) {
+                log.error("Forecast refresh failed for cycle {}: {}", cycleNumber, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Forecast next month for every customer with active meters in a billing cycle
+     */
+    public CycleForecastResult generateCycleForecasts(int cycleNumber) {
+        long started = System.currentTimeMillis();
+
+        YearMonth target = YearMonth.now().plusMonths(1);
+        YearMonth historyStart = target.minusMonths(ForecastService.HISTORY_MONTHS);
+
+        Map<Customer.CustomerType, CompiledRatePlan> plans = resolvePlans(target.atDay(1));
+        List<CustomerRange> ranges = partition(meterRepository.findActiveCustomerIdsByBillingCycle(cycleNumber),
+                parallelism * PARTITIONS_PER_WORKER);
+
+        CycleForecastResult result = new CycleForecastResult();
+        result.setBillingCycleNumber(cycleNumber);
+        result.setTargetPeriodStart(target.atDay(1));
+
+        List<Future<RangeResult>> futures = new ArrayList<>();
+        try (ExecutorService workers = Executors.newFixedThreadPool(parallelism, forecastWorkerThreads())) {
+            for (CustomerRange range : ranges) {
+                futures.add(workers.submit(() ->
+                        forecastRange(cycleNumber, range, target, historyStart, plans)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    RangeResult range = futures.get(i).get();
+                    result.setForecastsGenerated(result.getForecastsGenerated() + range.generated);
+                    result.setCustomersSkipped(result.getCustomersSkipped() + range.skipped);
+                } catch (ExecutionException e) {
+                    result.setFailedRanges(result.getFailedRanges() + 1);
+                    log.error("Forecast generation failed for cycle {} customers {}: {}", cycleNumber, ranges.get(i),
+                            e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Forecast generation interrupted");
+                }
+            }
+        }
+
+        forecastCache.evictCycle(cycleNumber);
+
+        result.setElapsedMs(System.currentTimeMillis() - started);
+        log.info("Cycle {} forecasts for {}: {} generated, {} skipped, {} of {} ranges failed, {} ms",
+                cycleNumber, target, result.getForecastsGenerated(), result.getCustomersSkipped(),
+                result.getFailedRanges(), ranges.size(), result.getElapsedMs());
+        return result;
+    }
+
+    private RangeResult forecastRange(int cycleNumber, CustomerRange range, YearMonth target, YearMonth historyStart,
+                                      Map<Customer.CustomerType, CompiledRatePlan> plans) {
+        writeTransaction.executeWithoutResult(status -> usageForecastRepository.deleteCycleRange(
+                cycleNumber, target.atDay(1), range.fromExclusive(), range.toInclusive()));
+
+        return readOnlyTransaction.execute(status -> {
+            RangeResult result = new RangeResult();
+            List<UsageForecast> pending = new ArrayList<>(writeBatchSize);
+            CustomerMeters customer = null;
+            String meterId = null;
+            MonthlyUsageSeries series = null;
+
+            try (Stream<MeterMonthlyUsageRepository.CycleMonthlyUsage> rows = monthlyUsageRepository.streamCycleMonthlyUsage(
+                    cycleNumber, historyStart.atDay(1), target.minusMonths(1).atDay(1),
+                    range.fromExclusive(), range.toInclusive())) {
+                Iterator<MeterMonthlyUsageRepository.CycleMonthlyUsage> it = rows.iterator();
+                while (it.hasNext()) {
+                    MeterMonthlyUsageRepository.CycleMonthlyUsage row = it.next();
+
+                    if (!row.getMeterId().equals(meterId)) {
+                        if (meterId != null) {
+                            customer.predictions.add(forecastService.forecast(meterId, series, target));
+                        }
+                        if (customer == null || !row.getCustomerId().equals(customer.customerId)) {
+                            if (customer != null) {
+                                addForecast(cycleNumber, customer, target, plans, pending, result);
+                            }
+                            customer = new CustomerMeters(row);
+                        }
+                        meterId = row.getMeterId();
+                        series = new MonthlyUsageSeries(historyStart, ForecastService.HISTORY_MONTHS);
+                    }
+                    // Meters without history in the window come back as one row without a month
+                    if (row.getMonthStart() != null) {
+                        series.add(YearMonth.from(row.getMonthStart()), row.getUsageCcf().doubleValue(), row.getReadingDays());
+                    }
+
+                    if (pending.size() >= writeBatchSize) {
+                        flush(pending);
+                    }
+                }
+                if (meterId != null) {
+                    customer.predictions.add(forecastService.forecast(meterId, series, target));
+                    addForecast(cycleNumber, customer, target, plans, pending, result);
+                }
+            }
+            flush(pending);
+            return result;
+        });
+    }
+
+    /**
+     * Price the sum of a customer's meter predictions once, falling back to the default estimate
+     * when none of the meters could be predicted
+     */
+    private void addForecast(int cycleNumber, CustomerMeters customer, YearMonth target,
+                             Map<Customer.CustomerType, CompiledRatePlan> plans,
+                             List<UsageForecast> pending, RangeResult result) {
+        CompiledRatePlan plan = plans.get(customer.customerType);
+        if (plan == null) {
+            result.skipped++;
+            return;
+        }
+
+        ForecastModel.Prediction prediction = ForecastService.combine(customer.predictions);
+        BigDecimal usage = prediction != null ? prediction.predictedUsageCcf() : ForecastService.DEFAULT_ESTIMATE_CCF;
+        RateEngineService.ChargeBreakdown charges =
+                rateEngineService.calculateCharges(usage, plan, target.atDay(1));
+
+        pending.add(UsageForecast.builder()
+                .customerId(customer.customerId)
+                .meterId(customer.firstMeterId)
+                .billingCycleNumber(cycleNumber)
+                .targetPeriodStart(target.atDay(1))
+                .targetPeriodEnd(target.atEndOfMonth())
+                .predictedTotalCcf(usage)
+                .predictedTotalAmount(charges.getTotalAmount())
+                .method(prediction != null ? prediction.method() : UsageForecast.ForecastMethod.SIMPLE_AVG)
+                .confidenceLevel(prediction != null ? prediction.confidence() : UsageForecast.ConfidenceLevel.LOW)
+                .historicalPeriodsUsed(prediction != null ? prediction.periodsUsed() : 0)
+                .build());
+        result.generated++;
+    }
+
+    private void flush(List<UsageForecast> pending) {
+        if (pending.isEmpty()) return;
+        List<UsageForecast> batch = List.copyOf(pending);
+        pending.clear();
+        writeTransaction.executeWithoutResult(status -> usageForecastRepository.saveAll(batch));
+    }
+
+    /**
+     * Compiled rate plan per customer type for the target month; types without an active plan are left out
+     */
+    private Map<Customer.CustomerType, CompiledRatePlan> resolvePlans(LocalDate targetStart) {
+        Map<Customer.CustomerType, CompiledRatePlan> plans = new EnumMap<>(Customer.CustomerType.class);
+        for (Customer.CustomerType type : Customer.CustomerType.values()) {
+            RatePlan.CustomerTypeScope scope = type == Customer.CustomerType.RESIDENTIAL
+                    ? RatePlan.CustomerTypeScope.RESIDENTIAL
+                    : RatePlan.CustomerTypeScope.COMMERCIAL;
+            ratePlanRepository.findActiveRatePlanForCustomerType(scope, targetStart)
+                    .ifPresentOrElse(
+                            plan -> plans.put(type, rateEngineService.compileCurrent(plan)),
+                            () -> log.warn("No active rate plan for {} customers, their forecasts are skipped", type));
+        }
+        return plans;
+    }
+
+    /**
+     * Split sorted customer ids into at most {@code count} contiguous ranges of similar size
+     */
+    private static List<CustomerRange> partition(List<String> customerIds, int count) {
+        List<CustomerRange> ranges = new ArrayList<>();
+        if (customerIds.isEmpty()) return ranges;
+
+        int size = (customerIds.size() + count - 1) / count;
+        String fromExclusive = "";
+        for (int end = size; ; end += size) {
+            String toInclusive = customerIds.get(Math.min(end, customerIds.size()) - 1);
+            ranges.add(new CustomerRange(fromExclusive, toInclusive));
+            if (end >= customerIds.size()) break;
+            fromExclusive = toInclusive;
+        }
+        return ranges;
+    }
+
+    private static ThreadFactory forecastWorkerThreads() {
+        AtomicInteger seq = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "forecast-batch-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record CustomerRange(String fromExclusive, String toInclusive) {}
+
+    /**
+     * Predictions of one customer's meters while the customer's rows stream by
+     */
+    private static class CustomerMeters {
+        final String customerId;
+        final Customer.CustomerType customerType;
+        final String firstMeterId;
+        final List<ForecastModel.Prediction> predictions = new ArrayList<>();
+
+        CustomerMeters(MeterMonthlyUsageRepository.CycleMonthlyUsage row) {
+            this.customerId = row.getCustomerId();
+            this.customerType = row.getCustomerType();
+            this.firstMeterId = row.getMeterId();
+        }
+    }
+
+    private static class RangeResult {
+        int generated;
+        int skipped;
+    }
+
+    public static class CycleForecastResult {
+        private int billingCycleNumber;
+        private LocalDate targetPeriodStart;
+        private int forecastsGenerated;
+        private int customersSkipped;
+        private int failedRanges;
+        private long elapsedMs;
+
+        // Getters and setters
+        public int getBillingCycleNumber() { return billingCycleNumber; }
+        public void setBillingCycleNumber(int billingCycleNumber) { this.billingCycleNumber = billingCycleNumber; }
+        public LocalDate getTargetPeriodStart() { return targetPeriodStart; }
+        public void setTargetPeriodStart(LocalDate targetPeriodStart) { this.targetPeriodStart = targetPeriodStart; }
+        public int getForecastsGenerated() { return forecastsGenerated; }
+        public void setForecastsGenerated(int forecastsGenerated) { this.forecastsGenerated = forecastsGenerated; }
+        public int getCustomersSkipped() { return customersSkipped; }
+        public void setCustomersSkipped(int customersSkipped) { this.customersSkipped = customersSkipped; }
+        public int getFailedRanges() { return failedRanges; }
+        public void setFailedRanges(int failedRanges) { this.failedRanges = failedRanges; }
+        public long getElapsedMs() { return elapsedMs; }
+        public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+    }
+}
@@ -0,0 +1,156 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.UsageForecast;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latest forecast per customer, served from memory with stale-while-revalidate semantics.
+ *
+ * A committed reading for one of the customer's meters marks the entry stale. The first read of a
+ * stale entry still returns the previous forecast and queues one regeneration on a background
+ * thread; later reads keep returning the previous forecast until the new one replaces it.
+ * Regenerated forecasts live only in the cache, so reads never write; the stored forecasts are
+ * replaced by the nightly batch and explicit generate requests.
+ * Customers without a forecast are cached as such, so a portal poll never reaches the database
+ * after the first load. Cached forecasts are shared between callers and must be treated as read-only.
+ */
+@Component
+@Slf4j
+public class ForecastCache {
+
+    private final ForecastService forecastService;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor;
+
+    public ForecastCache(
+            ForecastService forecastService,
+            @Value("${app.forecast.cache.enabled:true}") boolean enabled,
+            @Value("${app.forecast.cache.max-entries:200000}") int maxEntries,
+            @Value("${app.forecast.cache.refresh-threads:2}") int refreshThreads) {
+        this.forecastService = forecastService;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.refreshExecutor = Executors.newFixedThreadPool(Math.max(1, refreshThreads), refreshThreads());
+    }
+
+    /**
+     * Latest forecast of a customer, or null if none; loads it on a miss and regenerates it in the
+     * background when stale
+     */
+    public UsageForecast get(String customerId) {
+        if (!enabled) {
+            return forecastService.getLatestForecast(customerId);
+        }
+
+        Entry entry = entries.get(customerId);
+        if (entry == null) {
+            UsageForecast loaded = forecastService.getLatestForecast(customerId);
+            if (entries.size() < maxEntries) {
+                entries.putIfAbsent(customerId, new Entry(loaded));
+            }
+            return loaded;
+        }
+
+        if (entry.stale && entry.refreshing.compareAndSet(false, true)) {
+            scheduleRefresh(customerId, entry);
+        }
+        return entry.forecast;
+    }
+
+    /**
+     * Replace a customer's cached forecast with one just generated
+     */
+    public void put(UsageForecast forecast) {
+        if (!enabled) return;
+        Entry entry = entries.get(forecast.getCustomerId());
+        if (entry != null) {
+            entry.forecast = forecast;
+        } else if (entries.size() < maxEntries) {
+            entries.putIfAbsent(forecast.getCustomerId(), new Entry(forecast));
+        }
+    }
+
+    /**
+     * Drop the entries a cycle's batch run has replaced, along with customers cached without a forecast
+     */
+    public void evictCycle(int billingCycleNumber) {
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.forecast == null
+                || Integer.valueOf(billingCycleNumber).equals(entry.forecast.getBillingCycleNumber()));
+        log.debug("Evicted {} cached forecasts for cycle {}", before - entries.size(), billingCycleNumber);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * A committed reading makes the forecast of the meter's customer stale
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingIngested(MeterReadingIngestedEvent event) {
+        Entry entry = entries.get(event.customerId());
+        if (entry != null) {
+            entry.stale = true;
+        }
+    }
+
+    private void scheduleRefresh(String customerId, Entry entry) {
+        try {
+            refreshExecutor.execute(() -> refresh(customerId, entry));
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void refresh(String customerId, Entry entry) {
+        // Cleared first, so a reading arriving while this runs marks the entry stale again
+        entry.stale = false;
+        try {
+            entry.forecast = forecastService.predict(customerId);
+        } catch (Exception e) {
+            log.warn("Could not regenerate forecast for customer {}, keeping the previous one: {}",
+                    customerId, e.getMessage());
+        } finally {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private static ThreadFactory refreshThreads() {
+        AtomicInteger seq = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "forecast-refresh-" + seq.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Entry {
+        volatile UsageForecast forecast;
+        volatile boolean stale;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(UsageForecast forecast) {
+            this.forecast = forecast;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.UsageForecast;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * A way of predicting a meter's usage for a month from its monthly totals. ForecastService tries the
+ * models listed in app.forecast.models in order and keeps the first prediction.
+ */
+public interface ForecastModel {
+
+    /** Method this model is selected by in app.forecast.models */
+    UsageForecast.ForecastMethod method();
+
+    /**
+     * Predict the full-month usage of the target month, or null when the series does not support this model.
+     * Called concurrently for different meters.
+     */
+    Prediction forecast(String meterId, MonthlyUsageSeries series, YearMonth target);
+
+    record Prediction(
+            BigDecimal predictedUsageCcf,
+            UsageForecast.ForecastMethod method,
+            UsageForecast.ConfidenceLevel confidence,
+            int periodsUsed) {
+    }
+}
@@ -2,66 +2,116 @@ package com.hydrospark.billing.service;
 
 import com.hydrospark.billing.model.*;
 import com.hydrospark.billing.repository.*;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ForecastService {
 
-    private final MeterReadingRepository meterReadingRepository;
+    // Months of history loaded for a forecast, enough for a Holt-Winters fit
+    static final int HISTORY_MONTHS = HoltWintersModel.FIT_MONTHS;
+    static final BigDecimal DEFAULT_ESTIMATE_CCF = BigDecimal.valueOf(20);
+
     private final MeterRepository meterRepository;
     private final CustomerRepository customerRepository;
     private final RatePlanRepository ratePlanRepository;
     private final UsageForecastRepository usageForecastRepository;
     private final RateEngineService rateEngineService;
+    private final MonthlyUsageService monthlyUsageService;
+    private final List<ForecastModel> models;
+
+    public ForecastService(
+            MeterRepository meterRepository,
+            CustomerRepository customerRepository,
+            RatePlanRepository ratePlanRepository,
+            UsageForecastRepository usageForecastRepository,
+            RateEngineService rateEngineService,
+            MonthlyUsageService monthlyUsageService,
+            List<ForecastModel> availableModels,
+            @Value("${app.forecast.models:HOLT_WINTERS,SEASONAL_AVG}") List<UsageForecast.ForecastMethod> modelOrder) {
+        this.meterRepository = meterRepository;
+        this.customerRepository = customerRepository;
+        this.ratePlanRepository = ratePlanRepository;
+        this.usageForecastRepository = usageForecastRepository;
+        this.rateEngineService = rateEngineService;
+        this.monthlyUsageService = monthlyUsageService;
+
+        Map<UsageForecast.ForecastMethod, ForecastModel> byMethod = new EnumMap<>(UsageForecast.ForecastMethod.class);
+        availableModels.forEach(model -> byMethod.put(model.method(), model));
+        this.models = modelOrder.stream()
+                .map(method -> Optional.ofNullable(byMethod.get(method))
+                        .orElseThrow(() -> new RuntimeException("No forecast model for method " + method)))
+                .toList();
+        log.info("Forecast models in order: {}", modelOrder);
+    }
 
     /**
      * Generate usage and cost forecast for a customer's next billing period
      */
     @Transactional
     public UsageForecast generateForecast(String customerId) {
+        return buildForecast(customerId, true);
+    }
+
+    /**
+     * Forecast a customer's next billing period as generateForecast does, without saving it
+     */
+    @Transactional(readOnly = true)
+    public UsageForecast predict(String customerId) {
+        return buildForecast(customerId, false);
+    }
+
+    private UsageForecast buildForecast(String customerId, boolean save) {
         log.info("Generating forecast for customer: {}", customerId);
 
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
 
-        // Get customer's meter
-        List<Meter> meters = meterRepository.findByCustomerId(customerId);
+        // Forecast every active meter; the customer is billed on their total
+        List<Meter> meters = meterRepository.findByCustomerId(customerId).stream()
+                .filter(m -> m.getStatus() == Meter.Status.ACTIVE)
+                .toList();
         if (meters.isEmpty()) {
-            throw new RuntimeException("No meters found for customer");
+            throw new RuntimeException("No active meters found for customer");
         }
-        Meter meter = meters.get(0); // Use first meter
+        Meter meter = meters.get(0); // Recorded on the forecast
 
         // Determine forecast period (next month)
         LocalDate today = LocalDate.now();
         LocalDate nextMonthStart = today.withDayOfMonth(1).plusMonths(1);
         LocalDate nextMonthEnd = nextMonthStart.with(TemporalAdjusters.lastDayOfMonth());
 
-        // Get historical data for analysis
-        LocalDate historicalStart = today.minusMonths(12); // Last 12 months
-        List<MeterReading> historicalReadings = meterReadingRepository
-                .findByMeterIdAndReadingDateBetweenOrderByReadingDateAsc(
-                        meter.getId(), historicalStart, today);
+        // Monthly totals for the months before the target month (one rollup row per month)
+        YearMonth target = YearMonth.from(nextMonthStart);
+        List<ForecastModel.Prediction> meterPredictions = new ArrayList<>(meters.size());
+        for (Meter m : meters) {
+            MonthlyUsageSeries history = monthlyUsageService.series(
+                    m.getId(), target.minusMonths(HISTORY_MONTHS), target.minusMonths(1));
+            meterPredictions.add(forecast(m.getId(), history, target));
+        }
 
-        if (historicalReadings.size() < 30) {
-            log.warn("Insufficient historical data for forecast (only {} readings)", historicalReadings.size());
+        // Calculate predicted usage
+        ForecastModel.Prediction result = combine(meterPredictions);
+        if (result == null) {
+            log.warn("Insufficient historical data for forecast of customer {}", customerId);
             // Return low confidence forecast
             return createLowConfidenceForecast(customer, meter, nextMonthStart, nextMonthEnd);
         }
 
-        // Calculate predicted usage
-        ForecastResult result = calculatePredictedUsage(historicalReadings, nextMonthStart);
-
         // Get active rate plan
         RatePlan ratePlan = ratePlanRepository
                 .findActiveRatePlanForCustomerType(
@@ -73,7 +123,7 @@ public class ForecastService {
 
         // Calculate predicted cost
         RateEngineService.ChargeBreakdown charges = rateEngineService.calculateCharges(
-                result.predictedUsageCcf, ratePlan, nextMonthStart);
+                result.predictedUsageCcf(), ratePlan, nextMonthStart);
 
         // Create forecast record
         UsageForecast forecast = UsageForecast.builder()
@@ -82,18 +132,21 @@ public class ForecastService {
                 .billingCycleNumber(customer.getBillingCycleNumber())
                 .targetPeriodStart(nextMonthStart)
                 .targetPeriodEnd(nextMonthEnd)
-                .predictedTotalCcf(result.predictedUsageCcf)
+                .predictedTotalCcf(result.predictedUsageCcf())
                 .predictedTotalAmount(charges.getTotalAmount())
-                .method(result.method)
-                .confidenceLevel(result.confidence)
-                .historicalPeriodsUsed(result.periodsUsed)
+                .method(result.method())
+                .confidenceLevel(result.confidence())
+                .historicalPeriodsUsed(result.periodsUsed())
                 .build();
 
-        // Save forecast
-        forecast = usageForecastRepository.save(forecast);
+        if (save) {
+            forecast = usageForecastRepository.save(forecast);
+        } else {
+            forecast.setGeneratedAt(LocalDateTime.now());
+        }
 
         log.info("Forecast generated: {} CCF, ${}, confidence: {}", 
-                result.predictedUsageCcf, charges.getTotalAmount(), result.confidence);
+                result.predictedUsageCcf(), charges.getTotalAmount(), result.confidence());
 
         return forecast;
     }
@@ -103,116 +156,62 @@ public class ForecastService {
      */
     public UsageForecast getLatestForecast(String customerId) {
         LocalDate today = LocalDate.now();
-        return usageForecastRepository.findLatestForecastForCustomerAndDate(customerId, today)
+        return usageForecastRepository
+                .findFirstByCustomerIdAndTargetPeriodEndGreaterThanEqualOrderByGeneratedAtDesc(customerId, today)
                 .orElse(null);
     }
 
-    private ForecastResult calculatePredictedUsage(List<MeterReading> historicalReadings, LocalDate targetMonth) {
-        ForecastResult result = new ForecastResult();
-
-        // Get same month from previous year (seasonal pattern)
-        int targetMonthValue = targetMonth.getMonthValue();
-        BigDecimal sameMonthLastYear = getSameMonthUsage(historicalReadings, targetMonthValue, 1);
-        BigDecimal sameMonthTwoYearsAgo = getSameMonthUsage(historicalReadings, targetMonthValue, 2);
-
-        // Get recent average (last 3 months)
-        BigDecimal recentAverage = getRecentAverageUsage(historicalReadings, 3);
-
-        // Get overall average (last 12 months)
-        BigDecimal overallAverage = getRecentAverageUsage(historicalReadings, 12);
-
-        // Determine best method and calculate prediction
-        if (sameMonthLastYear != null && sameMonthTwoYearsAgo != null) {
-            // Use seasonal average with trend adjustment
-            BigDecimal seasonalAverage = sameMonthLastYear.add(sameMonthTwoYearsAgo)
-                    .divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_UP);
-            
-            // Calculate trend (is usage increasing or decreasing?)
-            BigDecimal trend = sameMonthLastYear.subtract(sameMonthTwoYearsAgo);
-            
-            result.predictedUsageCcf = seasonalAverage.add(trend.multiply(BigDecimal.valueOf(0.5)));
-            result.method = UsageForecast.ForecastMethod.SEASONAL_AVG;
-            result.confidence = UsageForecast.ConfidenceLevel.HIGH;
-            result.periodsUsed = 2;
-
-        } else if (sameMonthLastYear != null) {
-            // Use last year's same month
-            result.predictedUsageCcf = sameMonthLastYear;
-            result.method = UsageForecast.ForecastMethod.SEASONAL_AVG;
-            result.confidence = UsageForecast.ConfidenceLevel.MEDIUM;
-            result.periodsUsed = 1;
-
-        } else if (recentAverage != null) {
-            // Use recent average with seasonal adjustment
-            double seasonalFactor = getSeasonalFactor(targetMonthValue);
-            result.predictedUsageCcf = recentAverage.multiply(BigDecimal.valueOf(seasonalFactor));
-            result.method = UsageForecast.ForecastMethod.SIMPLE_AVG;
-            result.confidence = UsageForecast.ConfidenceLevel.MEDIUM;
-            result.periodsUsed = 3;
-
-        } else {
-            // Fall back to overall average
-            result.predictedUsageCcf = overallAverage;
-            result.method = UsageForecast.ForecastMethod.SIMPLE_AVG;
-            result.confidence = UsageForecast.ConfidenceLevel.LOW;
-            result.periodsUsed = historicalReadings.size() / 30; // Approximate months
-        }
-
-        // Ensure reasonable bounds
-        if (result.predictedUsageCcf.compareTo(BigDecimal.ZERO) <= 0) {
-            result.predictedUsageCcf = BigDecimal.valueOf(10); // Minimum 10 CCF
-            result.confidence = UsageForecast.ConfidenceLevel.LOW;
+    /**
+     * Predict the usage of a target month with the first configured model that can, or null when
+     * none can and the default estimate applies
+     */
+    ForecastModel.Prediction forecast(String meterId, MonthlyUsageSeries series, YearMonth target) {
+        for (ForecastModel model : models) {
+            ForecastModel.Prediction prediction = model.forecast(meterId, series, target);
+            if (prediction != null) {
+                return prediction;
+            }
         }
-
-        return result;
+        return null;
     }
 
-    private BigDecimal getSameMonthUsage(List<MeterReading> readings, int targetMonth, int yearsAgo) {
-        LocalDate targetDate = LocalDate.now().minusYears(yearsAgo).withMonth(targetMonth);
-        LocalDate monthStart = targetDate.withDayOfMonth(1);
-        LocalDate monthEnd = targetDate.with(TemporalAdjusters.lastDayOfMonth());
-
-        return readings.stream()
-                .filter(r -> !r.getReadingDate().isBefore(monthStart) && !r.getReadingDate().isAfter(monthEnd))
-                .map(MeterReading::getUsageCcf)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal getRecentAverageUsage(List<MeterReading> readings, int months) {
-        LocalDate cutoffDate = LocalDate.now().minusMonths(months);
-
-        List<MeterReading> recentReadings = readings.stream()
-                .filter(r -> !r.getReadingDate().isBefore(cutoffDate))
-                .toList();
-
-        if (recentReadings.isEmpty()) {
-            return null;
+    /**
+     * Combine the predictions of a customer's meters into one for the customer. Usage is summed, with
+     * the default estimate for meters no model could predict; confidence and periods used are those of
+     * the weakest meter, and the method that of the largest prediction. Null when no meter could be
+     * predicted.
+     */
+    static ForecastModel.Prediction combine(List<ForecastModel.Prediction> meterPredictions) {
+        BigDecimal usage = BigDecimal.ZERO;
+        ForecastModel.Prediction largest = null;
+        UsageForecast.ConfidenceLevel confidence = UsageForecast.ConfidenceLevel.HIGH;
+        int periodsUsed = Integer.MAX_VALUE;
+
+        for (ForecastModel.Prediction prediction : meterPredictions) {
+            if (prediction == null) {
+                usage = usage.add(DEFAULT_ESTIMATE_CCF);
+                confidence = UsageForecast.ConfidenceLevel.LOW;
+                periodsUsed = 0;
+                continue;
+            }
+            usage = usage.add(prediction.predictedUsageCcf());
+            if (largest == null || prediction.predictedUsageCcf().compareTo(largest.predictedUsageCcf()) > 0) {
+                largest = prediction;
+            }
+            if (prediction.confidence().compareTo(confidence) < 0) {
+                confidence = prediction.confidence();
+            }
+            periodsUsed = Math.min(periodsUsed, prediction.periodsUsed());
         }
 
-        BigDecimal total = recentReadings.stream()
-                .map(MeterReading::getUsageCcf)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        int days = recentReadings.size();
-        int expectedDaysInMonth = 30;
-
-        return total.divide(BigDecimal.valueOf(days), 2, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(expectedDaysInMonth));
-    }
-
-    private double getSeasonalFactor(int month) {
-        // Simple seasonal factors (can be refined with more data)
-        return switch (month) {
-            case 6, 7, 8 -> 1.3;  // Summer - higher usage (lawn watering, etc.)
-            case 12, 1, 2 -> 0.9;  // Winter - lower usage
-            default -> 1.0;        // Spring/Fall - normal
-        };
+        if (largest == null) return null;
+        return new ForecastModel.Prediction(usage, largest.method(), confidence, periodsUsed);
     }
 
     private UsageForecast createLowConfidenceForecast(Customer customer, Meter meter, 
                                                       LocalDate start, LocalDate end) {
         // Use a conservative estimate
-        BigDecimal estimatedUsage = BigDecimal.valueOf(20); // 20 CCF default
+        BigDecimal estimatedUsage = DEFAULT_ESTIMATE_CCF;
 
         RatePlan ratePlan = ratePlanRepository
                 .findActiveRatePlanForCustomerType(
@@ -238,11 +237,4 @@ public class ForecastService {
                 .historicalPeriodsUsed(0)
                 .build();
     }
-
-    private static class ForecastResult {
-        BigDecimal predictedUsageCcf;
-        UsageForecast.ForecastMethod method;
-        UsageForecast.ConfidenceLevel confidence;
-        int periodsUsed;
-    }
 }
@@ -0,0 +1,234 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.UsageForecast;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.math3.exception.MathIllegalStateException;
+import org.apache.commons.math3.optim.InitialGuess;
+import org.apache.commons.math3.optim.MaxEval;
+import org.apache.commons.math3.optim.SimpleBounds;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
+import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.BOBYQAOptimizer;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Additive Holt-Winters (level, trend and a 12 month season) over full-month usage totals.
+ *
+ * Smoothing parameters are fitted per meter by minimizing the one-step-ahead squared error with
+ * BOBYQA, which needs at least two years of consecutive months. The fitted state is kept in memory,
+ * so the next forecast of a meter only applies the update equations for the months completed since;
+ * parameters are refitted after a year, after a missing month, or when no state is cached.
+ */
+@Component
+@Slf4j
+public class HoltWintersModel implements ForecastModel {
+
+    static final int SEASON = 12;
+    static final int MIN_MONTHS = 2 * SEASON;
+    // Longest run of months a fit looks at
+    static final int FIT_MONTHS = 3 * SEASON;
+    private static final int REFIT_AFTER_MONTHS = 12;
+    private static final int MAX_EVALUATIONS = 300;
+
+    private static final double[] INITIAL_GUESS = {0.3, 0.1, 0.2};
+    private static final double[] LOWER = {0, 0, 0};
+    private static final double[] UPPER = {1, 1, 1};
+
+    private final Map<String, State> states = new ConcurrentHashMap<>();
+
+    @Override
+    public UsageForecast.ForecastMethod method() {
+        return UsageForecast.ForecastMethod.HOLT_WINTERS;
+    }
+
+    @Override
+    public Prediction forecast(String meterId, MonthlyUsageSeries series, YearMonth target) {
+        // Months up to the one before the current month are complete; the target itself never is
+        YearMonth current = YearMonth.now();
+        YearMonth lastComplete = target.isAfter(current) ? current.minusMonths(1) : target.minusMonths(1);
+        if (series.fullMonthTotal(lastComplete) == null) {
+            return null;
+        }
+
+        State cached = states.get(meterId);
+        if (cached != null) {
+            synchronized (cached) {
+                if (cached.catchUp(series, lastComplete)) {
+                    return cached.predict(target);
+                }
+            }
+        }
+
+        State fitted = fit(series, lastComplete);
+        if (fitted == null) {
+            states.remove(meterId);
+            return null;
+        }
+        states.put(meterId, fitted);
+        return fitted.predict(target);
+    }
+
+    /** Meters with fitted state held in memory */
+    public int cachedMeters() {
+        return states.size();
+    }
+
+    /**
+     * Fit parameters over the consecutive months ending with lastComplete, or null if there are too few
+     */
+    private State fit(MonthlyUsageSeries series, YearMonth lastComplete) {
+        int n = 0;
+        while (n < FIT_MONTHS && series.fullMonthTotal(lastComplete.minusMonths(n)) != null) {
+            n++;
+        }
+        if (n < MIN_MONTHS) {
+            return null;
+        }
+
+        YearMonth first = lastComplete.minusMonths(n - 1);
+        double[] usage = new double[n];
+        for (int i = 0; i < n; i++) {
+            usage[i] = series.fullMonthTotal(first.plusMonths(i));
+        }
+
+        double[] params = optimize(usage, first);
+        return State.smooth(usage, first, params[0], params[1], params[2]);
+    }
+
+    private double[] optimize(double[] usage, YearMonth first) {
+        try {
+            return new BOBYQAOptimizer(7, 0.1, 1e-4).optimize(
+                    new MaxEval(MAX_EVALUATIONS),
+                    new ObjectiveFunction(p -> State.smooth(usage, first, p[0], p[1], p[2]).squaredErrors),
+                    GoalType.MINIMIZE,
+                    new InitialGuess(INITIAL_GUESS),
+                    new SimpleBounds(LOWER, UPPER)).getPoint();
+        } catch (MathIllegalStateException e) {
+            log.debug("Holt-Winters fit did not converge, using default parameters: {}", e.getMessage());
+            return INITIAL_GUESS.clone();
+        }
+    }
+
+    /**
+     * Smoothing state of one meter: the fitted parameters plus level, trend and one seasonal
+     * component per calendar month, as of the last month applied
+     */
+    private static final class State {
+        final double alpha;
+        final double beta;
+        final double gamma;
+        final YearMonth fittedThrough;
+        final double[] seasonal = new double[SEASON];
+        double level;
+        double trend;
+        YearMonth through;
+        double squaredErrors;
+        int scoredMonths;
+        double usageSum;
+        int months;
+
+        private State(double alpha, double beta, double gamma, YearMonth fittedThrough) {
+            this.alpha = alpha;
+            this.beta = beta;
+            this.gamma = gamma;
+            this.fittedThrough = fittedThrough;
+        }
+
+        /**
+         * Initialize from the first two seasons and smooth over the rest; usage holds at least MIN_MONTHS months
+         */
+        static State smooth(double[] usage, YearMonth first, double alpha, double beta, double gamma) {
+            State state = new State(alpha, beta, gamma, first.plusMonths(usage.length - 1));
+
+            double firstMean = 0;
+            double secondMean = 0;
+            for (int i = 0; i < SEASON; i++) {
+                firstMean += usage[i];
+                secondMean += usage[i + SEASON];
+            }
+            firstMean /= SEASON;
+            secondMean /= SEASON;
+
+            // Level and trend as of the last month of the first season, seasonal components around the trend line
+            state.trend = (secondMean - firstMean) / SEASON;
+            state.level = firstMean + state.trend * (SEASON - 1) / 2.0;
+            for (int i = 0; i < SEASON; i++) {
+                double trendLine = firstMean + state.trend * (i - (SEASON - 1) / 2.0);
+                state.seasonal[slot(first.plusMonths(i))] = usage[i] - trendLine;
+                state.usageSum += usage[i];
+                state.months++;
+            }
+
+            state.through = first.plusMonths(SEASON - 1);
+            for (int i = SEASON; i < usage.length; i++) {
+                state.through = state.through.plusMonths(1);
+                state.update(usage[i], slot(state.through));
+            }
+            return state;
+        }
+
+        /**
+         * Apply the months completed since this state was last updated. False when the state cannot
+         * be carried forward and the meter needs a fresh fit.
+         */
+        boolean catchUp(MonthlyUsageSeries series, YearMonth lastComplete) {
+            if (through.isAfter(lastComplete) || fittedThrough.until(lastComplete, ChronoUnit.MONTHS) >= REFIT_AFTER_MONTHS) {
+                return false;
+            }
+            for (YearMonth m = through.plusMonths(1); !m.isAfter(lastComplete); m = m.plusMonths(1)) {
+                if (series.fullMonthTotal(m) == null) {
+                    return false;
+                }
+            }
+            while (through.isBefore(lastComplete)) {
+                through = through.plusMonths(1);
+                update(series.fullMonthTotal(through), slot(through));
+            }
+            return true;
+        }
+
+        private void update(double usage, int slot) {
+            double error = usage - (level + trend + seasonal[slot]);
+            squaredErrors += error * error;
+            scoredMonths++;
+
+            double previousLevel = level;
+            level = alpha * (usage - seasonal[slot]) + (1 - alpha) * (level + trend);
+            trend = beta * (level - previousLevel) + (1 - beta) * trend;
+            seasonal[slot] = gamma * (usage - level) + (1 - gamma) * seasonal[slot];
+            usageSum += usage;
+            months++;
+        }
+
+        /**
+         * Forecast of the target month, with confidence from the in-sample error relative to mean usage;
+         * null for a non-positive forecast
+         */
+        Prediction predict(YearMonth target) {
+            long horizon = through.until(target, ChronoUnit.MONTHS);
+            double usage = level + horizon * trend + seasonal[slot(target)];
+            if (usage <= 0) {
+                return null;
+            }
+
+            double relativeError = Math.sqrt(squaredErrors / scoredMonths) / (usageSum / months);
+            UsageForecast.ConfidenceLevel confidence = relativeError <= 0.15
+                    ? UsageForecast.ConfidenceLevel.HIGH
+                    : relativeError <= 0.35 ? UsageForecast.ConfidenceLevel.MEDIUM : UsageForecast.ConfidenceLevel.LOW;
+
+            return new Prediction(BigDecimal.valueOf(usage).setScale(2, RoundingMode.HALF_UP),
+                    UsageForecast.ForecastMethod.HOLT_WINTERS, confidence, months);
+        }
+
+        private static int slot(YearMonth month) {
+            return month.getMonthValue() - 1;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.AnomalyEvent;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Evaluates each reading as it is ingested instead of waiting for the nightly scan.
+ *
+ * Per-meter state (Welford count/mean/M2, last reading day, zero and high-usage streaks) lives in
+ * primitive arrays indexed by a dense meter ordinal, about 32 bytes per meter plus the id map entry,
+ * next to a reference to the compiled rules for the meter's customer type.
+ * Once a meter has a full 90-day window the statistics become exponentially weighted with the same
+ * horizon, so they track the same period the nightly scan looks at. State is rebuilt from the last
+ * 90 days of meter_readings at startup into fresh state, without holding the detector's lock, and
+ * swapped in when complete; readings ingested while it runs are buffered and evaluated once it is.
+ *
+ * The listener runs ahead of UsageBaselineService's, so a reading is judged against a baseline that
+ * does not include it yet.
+ */
+@Component
+@Slf4j
+public class IncrementalAnomalyDetector {
+
+    private static final int WINDOW_DAYS = 90;
+
+    // Readings buffered while state is rebuilt; beyond this they are left to the nightly scan
+    private static final int MAX_BUFFERED_READINGS = 100_000;
+
+    private final MeterReadingRepository meterReadingRepository;
+    private final AnomalyEventWriter anomalyEventWriter;
+    private final PlatformTransactionManager transactionManager;
+    private final UsageBaselineService usageBaselineService;
+    private final AnomalyRuleEngine anomalyRuleEngine;
+    private final boolean enabled;
+
+    // Guarded by this; replaced as a whole by a rebuild
+    private MeterState state;
+
+    // Guarded by this: readings that arrived during the rebuild, in arrival order
+    private final List<MeterReadingIngestedEvent> buffered = new ArrayList<>();
+    private boolean buffering;
+    private int droppedWhileBuffering;
+
+    public IncrementalAnomalyDetector(
+            MeterReadingRepository meterReadingRepository,
+            AnomalyEventWriter anomalyEventWriter,
+            PlatformTransactionManager transactionManager,
+            UsageBaselineService usageBaselineService,
+            AnomalyRuleEngine anomalyRuleEngine,
+            @Value("${app.anomaly-detection.incremental.enabled:true}") boolean enabled) {
+        this.meterReadingRepository = meterReadingRepository;
+        this.anomalyEventWriter = anomalyEventWriter;
+        this.transactionManager = transactionManager;
+        this.usageBaselineService = usageBaselineService;
+        this.anomalyRuleEngine = anomalyRuleEngine;
+        this.enabled = enabled;
+        this.state = new MeterState(anomalyRuleEngine.defaults());
+        // Ingest can start before the application is ready, so buffer from the start
+        this.buffering = enabled;
+    }
+
+    /**
+     * Rebuild per-meter state from stored readings
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) return;
+        synchronized (this) {
+            buffering = true;
+        }
+        long started = System.currentTimeMillis();
+
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        try {
+            MeterState fresh = new MeterState(anomalyRuleEngine.defaults());
+            Long readings = readOnlyTransaction.execute(status -> {
+                long rows = 0;
+                try (Stream<MeterReadingRepository.MeterUsage> stream = meterReadingRepository
+                        .streamActiveMeterUsageSince(LocalDate.now().minusDays(WINDOW_DAYS))) {
+                    for (var it = stream.iterator(); it.hasNext(); rows++) {
+                        MeterReadingRepository.MeterUsage row = it.next();
+                        int i = fresh.ordinal(row.getMeterId());
+                        fresh.rules[i] = anomalyRuleEngine.rulesFor(row.getCustomerType());
+                        fresh.observe(i, row.getReadingDate(), row.getUsageCcf().doubleValue(), null);
+                    }
+                }
+                return rows;
+            });
+
+            synchronized (this) {
+                state = fresh;
+            }
+            int replayed = replayBuffered();
+            log.info("Incremental anomaly state rebuilt: {} meters from {} readings in {} ms, {} buffered readings evaluated",
+                    trackedMeters(), readings, System.currentTimeMillis() - started, replayed);
+        } catch (Exception e) {
+            synchronized (this) {
+                buffered.clear();
+                buffering = false;
+            }
+            log.error("Could not rebuild incremental anomaly state, relying on the nightly scan: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Evaluate a reading once it is committed and write anything it triggers; buffered while state
+     * is being rebuilt
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingIngested(MeterReadingIngestedEvent event) {
+        if (!enabled || event.usageCcf() == null) return;
+
+        synchronized (this) {
+            if (buffering) {
+                if (buffered.size() < MAX_BUFFERED_READINGS) {
+                    buffered.add(event);
+                } else {
+                    droppedWhileBuffering++;
+                }
+                return;
+            }
+        }
+        evaluate(event, usageBaselineService.get(event.meterId()), false);
+    }
+
+    public synchronized int trackedMeters() {
+        return state.meterIndex.size();
+    }
+
+    /**
+     * Evaluate readings buffered during the rebuild, in arrival order, until none are left; new
+     * readings go straight to evaluation from then on. Readings at or before a meter's last rebuilt
+     * day were either part of the rebuild or arrived out of order, and are skipped. The baseline
+     * already includes buffered readings, so they are judged against the 90-day statistics.
+     */
+    private int replayBuffered() {
+        int replayed = 0;
+        while (true) {
+            List<MeterReadingIngestedEvent> batch;
+            synchronized (this) {
+                if (buffered.isEmpty()) {
+                    buffering = false;
+                    if (droppedWhileBuffering > 0) {
+                        log.warn("{} readings arrived while anomaly state was rebuilt and were left to the nightly scan",
+                                droppedWhileBuffering);
+                        droppedWhileBuffering = 0;
+                    }
+                    return replayed;
+                }
+                batch = new ArrayList<>(buffered);
+                buffered.clear();
+            }
+            for (MeterReadingIngestedEvent event : batch) {
+                evaluate(event, null, true);
+                replayed++;
+            }
+        }
+    }
+
+    /**
+     * Evaluate one reading against its meter's state and write anything it triggers
+     */
+    private void evaluate(MeterReadingIngestedEvent event, SeasonalBaseline baseline, boolean replay) {
+        AnomalyRules meterRules = anomalyRuleEngine.rulesFor(event.customerType());
+        List<AnomalyEvent> anomalies;
+        synchronized (this) {
+            Integer known = state.meterIndex.get(event.meterId());
+            if (replay && known != null && state.count[known] > 0
+                    && event.readingDate().toEpochDay() <= state.lastEpochDay[known]) {
+                return;
+            }
+            int i = state.ordinal(event.meterId());
+            state.rules[i] = meterRules;
+            anomalies = state.observe(i, event.readingDate(), event.usageCcf().doubleValue(), baseline)
+                    .stream()
+                    .map(finding -> AnomalyEvent.builder()
+                            .customerId(event.customerId())
+                            .meterId(event.meterId())
+                            .eventDate(event.readingDate())
+                            .eventType(finding.eventType())
+                            .severity(finding.severity())
+                            .description(meterRules.describe(finding.eventType(), finding.usage(), finding.mean()))
+                            .status(AnomalyEvent.Status.OPEN)
+                            .build())
+                    .toList();
+        }
+
+        if (anomalies.isEmpty()) return;
+        try {
+            int written = anomalyEventWriter.writeBatch(anomalies);
+            log.info("Incremental detection raised {} anomalies for meter {} on {}",
+                    written, event.meterId(), event.readingDate());
+        } catch (Exception e) {
+            log.error("Failed to write incremental anomalies for meter {}: {}", event.meterId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Per-meter state in primitive arrays indexed by a dense meter ordinal. Not thread-safe: the
+     * detector's copy is used under its lock, a rebuild's copy by the rebuilding thread alone.
+     */
+    private static class MeterState {
+        private final AnomalyRules defaults;
+        private final Map<String, Integer> meterIndex = new HashMap<>();
+        private int[] count = new int[1024];
+        private double[] mean = new double[1024];
+        private double[] m2 = new double[1024];
+        private int[] lastEpochDay = new int[1024];
+        private int[] zeroStreak = new int[1024];
+        private int[] highStreak = new int[1024];
+        private AnomalyRules[] rules = new AnomalyRules[1024];
+
+        MeterState(AnomalyRules defaults) {
+            this.defaults = defaults;
+        }
+
+        /**
+         * Evaluate a reading against the meter's prior state, then fold it in.
+         * Readings that arrive out of order only update the statistics. Spikes are judged against
+         * the seasonal baseline when it covers the date.
+         */
+        private List<Finding> observe(int i, LocalDate date, double usage, SeasonalBaseline baseline) {
+            List<Finding> findings = new ArrayList<>(0);
+            int day = (int) date.toEpochDay();
+
+            if (count[i] > 0 && day <= lastEpochDay[i]) {
+                fold(i, usage);
+                return findings;
+            }
+
+            AnomalyRules r = rules[i];
+            boolean consecutive = count[i] > 0 && day == lastEpochDay[i] + 1;
+            boolean hasHistory = r.hasHistory(count[i]);
+            double mu = mean[i];
+            double stdDev = count[i] > 0 ? Math.sqrt(m2[i] / count[i]) : 0;
+
+            zeroStreak[i] = usage == 0 ? (consecutive ? zeroStreak[i] + 1 : 1) : 0;
+            highStreak[i] = hasHistory && r.isHigh(usage, mu) ? (consecutive ? highStreak[i] + 1 : 1) : 0;
+            lastEpochDay[i] = day;
+
+            if (hasHistory) {
+                double spikeMean = mu;
+                double spikeStdDev = stdDev;
+                if (baseline != null) {
+                    synchronized (baseline) {
+                        if (baseline.covers(date)) {
+                            spikeMean = baseline.expected(date);
+                            spikeStdDev = baseline.stdDev(date);
+                        }
+                    }
+                }
+                if (r.isSpike(usage, spikeMean, spikeStdDev)) {
+                    findings.add(new Finding(AnomalyEvent.EventType.SPIKE, AnomalyEvent.Severity.HIGH, usage, spikeMean));
+                }
+                // Raise streaks once, on the day they reach the threshold
+                if (zeroStreak[i] == r.zeroUsageDays() && r.isZeroUsage(zeroStreak[i])) {
+                    findings.add(new Finding(AnomalyEvent.EventType.ZERO_USAGE, AnomalyEvent.Severity.MEDIUM, usage, mu));
+                }
+                if (highStreak[i] == r.sustainedHighDays() && r.isSustainedHigh(highStreak[i])) {
+                    findings.add(new Finding(AnomalyEvent.EventType.SUSTAINED_HIGH, AnomalyEvent.Severity.HIGH, usage, mu));
+                }
+            }
+
+            fold(i, usage);
+            return findings;
+        }
+
+        /**
+         * Welford update; exponentially weighted over WINDOW_DAYS once the window is full
+         */
+        private void fold(int i, double x) {
+            double delta = x - mean[i];
+            if (count[i] < WINDOW_DAYS) {
+                count[i]++;
+                mean[i] += delta / count[i];
+                m2[i] += delta * (x - mean[i]);
+            } else {
+                double alpha = 1.0 / WINDOW_DAYS;
+                double variance = m2[i] / count[i];
+                mean[i] += alpha * delta;
+                m2[i] = (1 - alpha) * (variance + alpha * delta * delta) * count[i];
+            }
+        }
+
+        private int ordinal(String meterId) {
+            Integer existing = meterIndex.get(meterId);
+            if (existing != null) return existing;
+
+            int i = meterIndex.size();
+            if (i == count.length) {
+                int capacity = count.length * 2;
+                count = Arrays.copyOf(count, capacity);
+                mean = Arrays.copyOf(mean, capacity);
+                m2 = Arrays.copyOf(m2, capacity);
+                lastEpochDay = Arrays.copyOf(lastEpochDay, capacity);
+                zeroStreak = Arrays.copyOf(zeroStreak, capacity);
+                highStreak = Arrays.copyOf(highStreak, capacity);
+                rules = Arrays.copyOf(rules, capacity);
+            }
+            count[i] = 0;
+            mean[i] = 0;
+            m2[i] = 0;
+            lastEpochDay[i] = 0;
+            zeroStreak[i] = 0;
+            highStreak[i] = 0;
+            rules[i] = defaults;
+            meterIndex.put(meterId, i);
+            return i;
+        }
+    }
+
+    private record Finding(AnomalyEvent.EventType eventType, AnomalyEvent.Severity severity, double usage, double mean) {}
+}
@@ -0,0 +1,94 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.MeterLastReading;
+import com.hydrospark.billing.model.MeterReading;
+import com.hydrospark.billing.repository.MeterLastReadingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Maintains meter_last_readings, one row per meter with its most recent reading, so the latest
+ * reading of a meter is a primary key lookup however long ago it arrived. Ingested readings update
+ * it in the ingest transaction; a nightly pass picks up readings that arrived another way.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LastReadingService {
+
+    // Far enough back to cover any stored reading
+    private static final LocalDate FULL_REBUILD_FROM = LocalDate.of(1970, 1, 1);
+    private static final int RECONCILE_DAYS = 7;
+
+    private final MeterLastReadingRepository lastReadingRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Record a newly stored reading as its meter's latest if it is; joins the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReading(MeterReading reading) {
+        lastReadingRepository.recordReading(reading.getMeterId(), reading.getId(), reading.getReadingDate(),
+                reading.getUsageCcf(), reading.getSource().name(), reading.getIngestedAt());
+    }
+
+    /**
+     * Latest reading of a meter, or null if it never reported
+     */
+    public MeterLastReading latest(String meterId) {
+        return lastReadingRepository.findById(meterId).orElse(null);
+    }
+
+    /**
+     * Last reading date and ingest time of every meter
+     */
+    public List<MeterLastReadingRepository.LastSeen> lastSeen() {
+        return lastReadingRepository.findAllLastSeen();
+    }
+
+    /**
+     * Active meters whose latest reading is older than a date
+     */
+    public List<MeterLastReadingRepository.SilentMeter> silentSince(LocalDate before) {
+        return lastReadingRepository.findActiveSilentSince(before);
+    }
+
+    /**
+     * Build the table from all readings the first time the application starts with it empty
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (lastReadingRepository.count() == 0) {
+                Integer rows = new TransactionTemplate(transactionManager).execute(
+                        status -> lastReadingRepository.rebuildFrom(FULL_REBUILD_FROM));
+                log.info("Built last reading index: {} meters", rows);
+            }
+        } catch (Exception e) {
+            log.error("Could not build last reading index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Catch up with readings of the last week that were stored without going through ingest
+     * Scheduled daily at 1:12 AM
+     */
+    @Scheduled(cron = "0 12 1 * * *")
+    @Transactional
+    public void reconcile() {
+        LocalDate from = LocalDate.now().minusDays(RECONCILE_DAYS);
+        int rows = lastReadingRepository.rebuildFrom(from);
+        log.info("Last reading index reconciled since {}: {} rows touched", from, rows);
+    }
+}
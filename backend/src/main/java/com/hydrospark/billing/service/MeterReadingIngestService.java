@@ -0,0 +1,65 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.model.Meter;
+import com.hydrospark.billing.model.MeterReading;
+import com.hydrospark.billing.repository.CustomerRepository;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import com.hydrospark.billing.repository.MeterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Stores new meter readings and announces them to listeners (e.g. incremental anomaly detection)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MeterReadingIngestService {
+
+    private final MeterReadingRepository meterReadingRepository;
+    private final MeterRepository meterRepository;
+    private final CustomerRepository customerRepository;
+    private final MonthlyUsageService monthlyUsageService;
+    private final LastReadingService lastReadingService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public MeterReading recordReading(String meterId, LocalDate readingDate, BigDecimal usageCcf,
+                                      MeterReading.ReadingSource source) {
+        // Check if reading already exists
+        if (meterReadingRepository.findByMeterIdAndReadingDate(meterId, readingDate).isPresent()) {
+            throw new RuntimeException("Reading already exists for this meter and date");
+        }
+
+        Meter meter = meterRepository.findById(meterId)
+                .orElseThrow(() -> new RuntimeException("Meter not found: " + meterId));
+
+        MeterReading reading = MeterReading.builder()
+                .meterId(meterId)
+                .readingDate(readingDate)
+                .usageCcf(usageCcf)
+                .source(source)
+                .build();
+
+        // Rollups are kept per billing cycle and listeners pick anomaly rules by customer type
+        Customer customer = customerRepository.findById(meter.getCustomerId()).orElse(null);
+        Customer.CustomerType customerType = customer != null ? customer.getCustomerType() : null;
+
+        reading = meterReadingRepository.save(reading);
+        monthlyUsageService.addReading(meterId, meter.getCustomerId(),
+                customer != null ? customer.getBillingCycleNumber() : null, readingDate, usageCcf);
+        lastReadingService.recordReading(reading);
+
+        eventPublisher.publishEvent(new MeterReadingIngestedEvent(
+                meterId, meter.getCustomerId(), customerType, readingDate, usageCcf, source));
+
+        return reading;
+    }
+}
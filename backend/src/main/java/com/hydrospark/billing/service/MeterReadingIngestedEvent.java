@@ -0,0 +1,13 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.model.MeterReading;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Published when a new daily meter reading has been stored
+ */
+public record MeterReadingIngestedEvent(String meterId, String customerId, Customer.CustomerType customerType,
+                                        LocalDate readingDate, BigDecimal usageCcf, MeterReading.ReadingSource source) {}
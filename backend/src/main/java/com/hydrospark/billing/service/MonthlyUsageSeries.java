@@ -0,0 +1,88 @@
+package com.hydrospark.billing.service;
+
+import java.time.YearMonth;
+
+/**
+ * Usage totals of one meter per calendar month over a fixed span, with the number of days that had
+ * a reading. Month slots are addressed by offset from the first month, so every lookup is O(1).
+ * Not thread-safe; filled by one thread and then only read.
+ */
+public class MonthlyUsageSeries {
+
+    private final YearMonth firstMonth;
+    private final double[] totals;
+    private final int[] readingDays;
+
+    public MonthlyUsageSeries(YearMonth firstMonth, int months) {
+        this.firstMonth = firstMonth;
+        this.totals = new double[months];
+        this.readingDays = new int[months];
+    }
+
+    /**
+     * Add usage to a month; months outside the span are ignored
+     */
+    public void add(YearMonth month, double usage, int days) {
+        int i = index(month);
+        if (i < 0) return;
+        totals[i] += usage;
+        readingDays[i] += days;
+    }
+
+    /**
+     * Total usage of a month, or null if the month had no readings (or is outside the span)
+     */
+    public Double total(YearMonth month) {
+        int i = index(month);
+        return i < 0 || readingDays[i] == 0 ? null : totals[i];
+    }
+
+    /**
+     * Usage of a month scaled up to all of its days, so partly read months compare with full ones;
+     * null if the month had no readings
+     */
+    public Double fullMonthTotal(YearMonth month) {
+        int i = index(month);
+        return i < 0 || readingDays[i] == 0 ? null : totals[i] / readingDays[i] * month.lengthOfMonth();
+    }
+
+    /**
+     * Average daily usage over an inclusive range of months, or null without readings
+     */
+    public Double dailyAverage(YearMonth from, YearMonth to) {
+        double sum = 0;
+        int days = 0;
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            int i = index(m);
+            if (i < 0) continue;
+            sum += totals[i];
+            days += readingDays[i];
+        }
+        return days == 0 ? null : sum / days;
+    }
+
+    /**
+     * Days with readings over an inclusive range of months
+     */
+    public int readingDays(YearMonth from, YearMonth to) {
+        int days = 0;
+        for (YearMonth m = from; !m.isAfter(to); m = m.plusMonths(1)) {
+            int i = index(m);
+            if (i >= 0) days += readingDays[i];
+        }
+        return days;
+    }
+
+    public YearMonth getFirstMonth() {
+        return firstMonth;
+    }
+
+    public int months() {
+        return totals.length;
+    }
+
+    private int index(YearMonth month) {
+        long i = (month.getYear() - firstMonth.getYear()) * 12L + month.getMonthValue() - firstMonth.getMonthValue();
+        return i < 0 || i >= totals.length ? -1 : (int) i;
+    }
+}
@@ -0,0 +1,217 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.MeterMonthlyUsage;
+import com.hydrospark.billing.repository.BillingCycleMonthlyUsageRepository;
+import com.hydrospark.billing.repository.CustomerMonthlyUsageRepository;
+import com.hydrospark.billing.repository.CustomerRepository;
+import com.hydrospark.billing.repository.MeterMonthlyUsageRepository;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import com.hydrospark.billing.repository.MeterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly usage rollups: per meter (meter_monthly_usage), per customer
+ * (customer_monthly_usage) and per billing cycle (billing_cycle_monthly_usage). Ingested readings
+ * are added to all three in the ingest transaction; a nightly pass deletes and recomputes recent
+ * months, plus any older month that received readings since the previous night, the meter rollup
+ * from meter_readings and the others from the meter rollup.
+ *
+ * Rebuilds run in short READ COMMITTED transactions over ranges of meter or customer ids, each
+ * touching a single rollup table. Their INSERT ... SELECT then reads its source without locking it,
+ * and ingest, which locks meter, customer and cycle rows in that order, can wait on a rebuild but
+ * never the other way round. A meter-month created by ingest while its range is being rebuilt may
+ * miss that reading until the next night. Readings deleted from older months
+ * still need {@link #rebuildAll()}, so bills are summed from meter_readings, not from the rollups.
+ * Forecasts read meter months through {@link #series}; customer usage charts read the customer rollup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MonthlyUsageService {
+
+    // Far enough back to cover any stored reading
+    private static final LocalDate FULL_REBUILD_FROM = LocalDate.of(1970, 1, 1);
+
+    // Two nights, so readings ingested before a skipped run are still picked up
+    private static final long RECONCILE_LOOKBACK_HOURS = 48;
+
+    // Meters or customers per rebuild transaction; their rollup rows stay locked until it commits
+    private static final int REBUILD_RANGE_SIZE = 200;
+
+    private final MeterMonthlyUsageRepository monthlyUsageRepository;
+    private final CustomerMonthlyUsageRepository customerMonthlyUsageRepository;
+    private final BillingCycleMonthlyUsageRepository cycleMonthlyUsageRepository;
+    private final MeterReadingRepository meterReadingRepository;
+    private final MeterRepository meterRepository;
+    private final CustomerRepository customerRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Add a newly stored reading to its meter's, customer's and cycle's month; joins the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addReading(String meterId, String customerId, Integer billingCycleNumber,
+                           LocalDate readingDate, BigDecimal usageCcf) {
+        LocalDate monthStart = readingDate.withDayOfMonth(1);
+        monthlyUsageRepository.addReading(meterId, monthStart, usageCcf);
+        customerMonthlyUsageRepository.addReading(customerId, monthStart, usageCcf);
+        if (billingCycleNumber != null) {
+            cycleMonthlyUsageRepository.addReading(billingCycleNumber, monthStart, usageCcf);
+        }
+    }
+
+    /**
+     * Monthly totals of a meter for an inclusive range of months, one row read per month
+     */
+    public MonthlyUsageSeries series(String meterId, YearMonth from, YearMonth to) {
+        MonthlyUsageSeries series = new MonthlyUsageSeries(from, (int) from.until(to, ChronoUnit.MONTHS) + 1);
+        for (MeterMonthlyUsage month : monthlyUsageRepository.findByMeterIdAndMonthStartBetweenOrderByMonthStartAsc(
+                meterId, from.atDay(1), to.atDay(1))) {
+            series.add(YearMonth.from(month.getMonthStart()), month.getUsageCcf().doubleValue(), month.getReadingDays());
+        }
+        return series;
+    }
+
+    /**
+     * Build the tables the first time the application starts with them empty: everything from
+     * meter_readings when the meter rollup is empty, otherwise the customer and cycle rollups from it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (monthlyUsageRepository.count() == 0) {
+                rebuildFrom(FULL_REBUILD_FROM);
+            } else if (customerMonthlyUsageRepository.count() == 0) {
+                RebuildResult result = new RebuildResult();
+                rebuildCustomersAndCycles(FULL_REBUILD_FROM, result);
+                log.info("Built customer and cycle usage rollups: {} customer-months, {} cycle-months",
+                        result.getCustomerRows(), result.getCycleRows());
+            }
+        } catch (Exception e) {
+            log.error("Could not build monthly usage rollups: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute last month and this month from meter_readings, from further back when readings for an
+     * older month were ingested recently
+     * Scheduled daily at 1:10 AM, before the forecast job
+     */
+    @Scheduled(cron = "0 10 1 * * *")
+    public void reconcileRecentMonths() {
+        LocalDate fromMonth = YearMonth.now().minusMonths(1).atDay(1);
+        LocalDate earliest = meterReadingRepository.findEarliestReadingDateIngestedAfter(
+                LocalDateTime.now().minusHours(RECONCILE_LOOKBACK_HOURS));
+        if (earliest != null && earliest.isBefore(fromMonth)) {
+            fromMonth = earliest.withDayOfMonth(1);
+        }
+        rebuildFrom(fromMonth);
+    }
+
+    /**
+     * Rebuild all three rollups from meter_readings, e.g. after readings were corrected or meters
+     * moved between customers
+     */
+    public RebuildResult rebuildAll() {
+        long started = System.currentTimeMillis();
+        RebuildResult result = rebuildFrom(FULL_REBUILD_FROM);
+        result.setElapsedMs(System.currentTimeMillis() - started);
+        return result;
+    }
+
+    /**
+     * Delete every month from the given month start onwards and recompute it, each rollup from the one
+     * below it, so months whose readings were deleted or whose meters changed owner come out exact
+     */
+    private RebuildResult rebuildFrom(LocalDate fromMonth) {
+        RebuildResult result = new RebuildResult();
+        TransactionTemplate transaction = rebuildTransaction();
+        for (IdRange range : idRanges(meterRepository.findAllIdsOrderById())) {
+            int rows = transaction.execute(status -> {
+                monthlyUsageRepository.deleteRange(range.fromExclusive(), range.toInclusive(), fromMonth);
+                return monthlyUsageRepository.rebuildRange(range.fromExclusive(), range.toInclusive(), fromMonth);
+            });
+            result.setMeterRows(result.getMeterRows() + rows);
+        }
+        rebuildCustomersAndCycles(fromMonth, result);
+        log.info("Monthly usage rollups rebuilt since {}: {} meter, {} customer, {} cycle rows",
+                fromMonth, result.getMeterRows(), result.getCustomerRows(), result.getCycleRows());
+        return result;
+    }
+
+    /**
+     * Recompute the customer rollup from the meter rollup, then the cycle rollup from it
+     */
+    private void rebuildCustomersAndCycles(LocalDate fromMonth, RebuildResult result) {
+        TransactionTemplate transaction = rebuildTransaction();
+        for (IdRange range : idRanges(customerRepository.findAllIdsOrderById())) {
+            int rows = transaction.execute(status -> {
+                customerMonthlyUsageRepository.deleteRange(range.fromExclusive(), range.toInclusive(), fromMonth);
+                return customerMonthlyUsageRepository.rebuildRange(range.fromExclusive(), range.toInclusive(), fromMonth);
+            });
+            result.setCustomerRows(result.getCustomerRows() + rows);
+        }
+        // A few rows per month, rebuilt at once
+        result.setCycleRows(transaction.execute(status -> {
+            cycleMonthlyUsageRepository.deleteFrom(fromMonth);
+            return cycleMonthlyUsageRepository.rebuildFrom(fromMonth);
+        }));
+    }
+
+    private TransactionTemplate rebuildTransaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return transaction;
+    }
+
+    /**
+     * Split sorted ids into contiguous (fromExclusive, toInclusive] ranges of REBUILD_RANGE_SIZE ids
+     */
+    private static List<IdRange> idRanges(List<String> ids) {
+        List<IdRange> ranges = new ArrayList<>();
+        String fromExclusive = "";
+        for (int end = REBUILD_RANGE_SIZE; end - REBUILD_RANGE_SIZE < ids.size(); end += REBUILD_RANGE_SIZE) {
+            String toInclusive = ids.get(Math.min(end, ids.size()) - 1);
+            ranges.add(new IdRange(fromExclusive, toInclusive));
+            fromExclusive = toInclusive;
+        }
+        return ranges;
+    }
+
+    private record IdRange(String fromExclusive, String toInclusive) {}
+
+    public static class RebuildResult {
+        private int meterRows;
+        private int customerRows;
+        private int cycleRows;
+        private long elapsedMs;
+
+        // Getters and setters
+        public int getMeterRows() { return meterRows; }
+        public void setMeterRows(int meterRows) { this.meterRows = meterRows; }
+        public int getCustomerRows() { return customerRows; }
+        public void setCustomerRows(int customerRows) { this.customerRows = customerRows; }
+        public int getCycleRows() { return cycleRows; }
+        public void setCycleRows(int cycleRows) { this.cycleRows = cycleRows; }
+        public long getElapsedMs() { return elapsedMs; }
+        public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+    }
+}
@@ -1,6 +1,6 @@
 package com.hydrospark.billing.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hydrospark.billing.model.RateComponent;
 import com.hydrospark.billing.model.RatePlan;
@@ -10,12 +10,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -23,195 +20,111 @@ import java.util.Map;
 public class RateEngineService {
 
     private final RateComponentRepository rateComponentRepository;
+    private final ChargeCalculationCache chargeCalculationCache;
+    private final ChargeTracer chargeTracer;
+    private final RatePlanVersionService ratePlanVersionService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
      * Calculate total charges for a given usage amount using the specified rate plan
      */
     public ChargeBreakdown calculateCharges(BigDecimal usageCcf, RatePlan ratePlan, LocalDate billingDate) {
-        log.info("Calculating charges for {} CCF using rate plan: {}", usageCcf, ratePlan.getName());
-
-        ChargeBreakdown breakdown = new ChargeBreakdown();
-        breakdown.setUsageCcf(usageCcf);
-        breakdown.setRatePlanName(ratePlan.getName());
-
-        // Get all active components for this rate plan
-        List<RateComponent> components = rateComponentRepository
-                .findByRatePlanIdAndIsActiveTrueOrderBySortOrderAsc(ratePlan.getId());
-
-        BigDecimal subtotal = BigDecimal.ZERO;
-        BigDecimal usageCharge = BigDecimal.ZERO;
-        BigDecimal baseFee = BigDecimal.ZERO;
-        BigDecimal totalSurcharges = BigDecimal.ZERO;
-
-        // Process each component
-        for (RateComponent component : components) {
-            try {
-                JsonNode config = objectMapper.readTree(component.getConfigJson());
-
-                switch (component.getComponentType()) {
-                    case TIERED_USAGE:
-                        BigDecimal tierCharge = calculateTieredUsage(usageCcf, config);
-                        usageCharge = usageCharge.add(tierCharge);
-                        breakdown.addLineItem(component.getName(), tierCharge, "Usage charge");
-                        log.debug("Tiered usage charge: ${}", tierCharge);
-                        break;
-
-                    case FIXED_FEE:
-                        BigDecimal fee = calculateFixedFee(config);
-                        baseFee = baseFee.add(fee);
-                        breakdown.addLineItem(component.getName(), fee, "Fixed fee");
-                        log.debug("Fixed fee: ${}", fee);
-                        break;
-
-                    case SEASONAL_MULTIPLIER:
-                        BigDecimal multiplier = calculateSeasonalMultiplier(config, billingDate);
-                        if (multiplier.compareTo(BigDecimal.ONE) > 0) {
-                            BigDecimal seasonalCharge = usageCharge.multiply(multiplier.subtract(BigDecimal.ONE));
-                            usageCharge = usageCharge.add(seasonalCharge);
-                            breakdown.addLineItem(component.getName(), seasonalCharge, 
-                                    "Seasonal adjustment (" + multiplier + "x)");
-                            log.debug("Seasonal multiplier: {} = ${}", multiplier, seasonalCharge);
-                        }
-                        break;
-
-                    case SURCHARGE_PERCENT:
-                        subtotal = usageCharge.add(baseFee);
-                        BigDecimal percentSurcharge = calculatePercentSurcharge(subtotal, config);
-                        totalSurcharges = totalSurcharges.add(percentSurcharge);
-                        breakdown.addLineItem(component.getName(), percentSurcharge, "Surcharge");
-                        log.debug("Percent surcharge: ${}", percentSurcharge);
-                        break;
-
-                    case SURCHARGE_FLAT:
-                        BigDecimal flatSurcharge = calculateFlatSurcharge(config);
-                        totalSurcharges = totalSurcharges.add(flatSurcharge);
-                        breakdown.addLineItem(component.getName(), flatSurcharge, "Surcharge");
-                        log.debug("Flat surcharge: ${}", flatSurcharge);
-                        break;
-
-                    default:
-                        log.warn("Unknown component type: {}", component.getComponentType());
-                }
-
-            } catch (Exception e) {
-                log.error("Error processing component {}: {}", component.getName(), e.getMessage(), e);
-                throw new RuntimeException("Error calculating charges: " + e.getMessage());
-            }
-        }
-
-        // Calculate final amounts
-        breakdown.setUsageCharge(usageCharge);
-        breakdown.setBaseFee(baseFee);
-        breakdown.setTotalSurcharges(totalSurcharges);
-        breakdown.setSubtotal(usageCharge.add(baseFee));
-        breakdown.setTotalAmount(usageCharge.add(baseFee).add(totalSurcharges));
-
-        log.info("Charge calculation complete. Total: ${}", breakdown.getTotalAmount());
-
-        return breakdown;
+        return calculateCharges(usageCcf, ratePlan, billingDate, false);
     }
 
-    private BigDecimal calculateTieredUsage(BigDecimal usageCcf, JsonNode config) {
-        BigDecimal totalCharge = BigDecimal.ZERO;
-        BigDecimal remainingUsage = usageCcf;
-
-        JsonNode tiers = config.get("tiers");
-        if (tiers == null || !tiers.isArray()) {
-            throw new RuntimeException("Invalid tiered usage configuration");
-        }
-
-        for (JsonNode tier : tiers) {
-            if (remainingUsage.compareTo(BigDecimal.ZERO) <= 0) {
-                break;
-            }
-
-            BigDecimal upTo = tier.has("up_to") && !tier.get("up_to").isNull() 
-                    ? BigDecimal.valueOf(tier.get("up_to").asDouble())
-                    : null; // Unlimited tier
-
-            BigDecimal rateCcf = BigDecimal.valueOf(tier.get("rate_per_ccf").asDouble());
-
-            BigDecimal tierUsage;
-            if (upTo == null) {
-                // Last tier - unlimited
-                tierUsage = remainingUsage;
-            } else {
-                // Calculate usage for this tier
-                BigDecimal tierMax = upTo;
-                
-                // Find the lower bound (previous tier's upTo value or 0)
-                BigDecimal tierMin = BigDecimal.ZERO;
-                for (JsonNode prevTier : tiers) {
-                    if (prevTier == tier) break;
-                    if (prevTier.has("up_to") && !prevTier.get("up_to").isNull()) {
-                        tierMin = BigDecimal.valueOf(prevTier.get("up_to").asDouble());
-                    }
-                }
-
-                BigDecimal tierCapacity = tierMax.subtract(tierMin);
-                tierUsage = remainingUsage.min(tierCapacity);
-            }
+    /**
+     * Calculate charges with the plan's current version, attaching a full per-component trace
+     * to the result when requested. Traced (requested or sampled) calculations bypass the result cache.
+     */
+    public ChargeBreakdown calculateCharges(BigDecimal usageCcf, RatePlan ratePlan, LocalDate billingDate,
+                                            boolean traceRequested) {
+        String versionId = ratePlanVersionService.currentVersionId(ratePlan);
+        return calculateChargesForVersion(usageCcf, versionId, billingDate, traceRequested);
+    }
 
-            BigDecimal tierCharge = tierUsage.multiply(rateCcf);
-            totalCharge = totalCharge.add(tierCharge);
-            remainingUsage = remainingUsage.subtract(tierUsage);
+    /**
+     * Calculate charges with a specific plan version, e.g. the one a bill was originally priced with
+     */
+    public ChargeBreakdown calculateChargesForVersion(BigDecimal usageCcf, String ratePlanVersionId,
+                                                      LocalDate billingDate, boolean traceRequested) {
+        CompiledRatePlan plan = ratePlanVersionService.compiled(ratePlanVersionId);
+        boolean sampled = chargeTracer.recordCalculation(plan.getRatePlanId());
 
-            log.debug("Tier charge: {} CCF @ ${}/CCF = ${}", tierUsage, rateCcf, tierCharge);
+        if (traceRequested || sampled) {
+            return calculateTraced(usageCcf, plan, billingDate, traceRequested);
         }
 
-        return totalCharge.setScale(2, RoundingMode.HALF_UP);
+        return chargeCalculationCache.get(plan.getRatePlanId(), ratePlanVersionId, usageCcf,
+                billingDate.getMonthValue(), () -> evaluate(plan, usageCcf, billingDate, null));
     }
 
-    private BigDecimal calculateFixedFee(JsonNode config) {
-        if (!config.has("amount")) {
-            throw new RuntimeException("Fixed fee missing 'amount' field");
-        }
-
-        return BigDecimal.valueOf(config.get("amount").asDouble())
-                .setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Calculate charges against an already compiled plan (no repository access)
+     */
+    public ChargeBreakdown calculateCharges(BigDecimal usageCcf, CompiledRatePlan plan, LocalDate billingDate) {
+        return plan.calculate(usageCcf, billingDate);
     }
 
-    private BigDecimal calculateSeasonalMultiplier(JsonNode config, LocalDate billingDate) {
-        if (!config.has("applies_months") || !config.has("multiplier")) {
-            throw new RuntimeException("Seasonal multiplier missing required fields");
-        }
+    /**
+     * Compiled current version of a plan, for pricing many usage values without per-call lookups
+     */
+    public CompiledRatePlan compileCurrent(RatePlan ratePlan) {
+        return ratePlanVersionService.compiled(ratePlanVersionService.currentVersionId(ratePlan));
+    }
 
-        int currentMonth = billingDate.getMonthValue();
-        JsonNode appliesMonths = config.get("applies_months");
+    /**
+     * Load and parse the live active components of a rate plan once, for pricing many usage values.
+     * Used for candidate plans that have not been versioned yet.
+     */
+    public CompiledRatePlan compile(RatePlan ratePlan) {
+        List<RateComponent> components = rateComponentRepository
+                .findByRatePlanIdAndIsActiveTrueOrderBySortOrderAsc(ratePlan.getId());
 
-        // Check if current month is in the applicable months
-        boolean applies = false;
-        for (JsonNode month : appliesMonths) {
-            if (month.asInt() == currentMonth) {
-                applies = true;
-                break;
-            }
-        }
+        return CompiledRatePlan.compile(ratePlan.getId(), null, ratePlan.getName(), components, objectMapper);
+    }
 
-        if (applies) {
-            return BigDecimal.valueOf(config.get("multiplier").asDouble());
+    private ChargeBreakdown calculateTraced(BigDecimal usageCcf, CompiledRatePlan plan, LocalDate billingDate,
+                                           boolean requested) {
+        ChargeTrace trace = new ChargeTrace();
+        trace.setRatePlanId(plan.getRatePlanId());
+        trace.setRatePlanVersionId(plan.getRatePlanVersionId());
+        trace.setRatePlanName(plan.getRatePlanName());
+        trace.setUsageCcf(usageCcf);
+        trace.setBillingDate(billingDate);
+        trace.setRequested(requested);
+
+        long started = System.nanoTime();
+        ChargeBreakdown breakdown = evaluate(plan, usageCcf, billingDate, trace);
+        trace.setElapsedNanos(System.nanoTime() - started);
+        trace.setTotalAmount(breakdown.getTotalAmount());
+
+        chargeTracer.recordTrace(trace);
+        if (requested) {
+            breakdown.setTrace(trace);
         }
-
-        return BigDecimal.ONE; // No multiplier
+        return breakdown;
     }
 
-    private BigDecimal calculatePercentSurcharge(BigDecimal baseAmount, JsonNode config) {
-        if (!config.has("percent")) {
-            throw new RuntimeException("Percent surcharge missing 'percent' field");
-        }
+    private ChargeBreakdown evaluate(CompiledRatePlan plan, BigDecimal usageCcf, LocalDate billingDate,
+                                     ChargeTrace trace) {
+        chargeTracer.recordEvaluation(plan);
+        return plan.calculate(usageCcf, billingDate, trace);
+    }
 
-        BigDecimal percent = BigDecimal.valueOf(config.get("percent").asDouble());
-        return baseAmount.multiply(percent).setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Drop cached charge results for a plan after it changes. Compiled versions stay cached
+     * because versions are immutable.
+     */
+    public void invalidatePlan(String ratePlanId) {
+        chargeCalculationCache.invalidatePlan(ratePlanId);
     }
 
-    private BigDecimal calculateFlatSurcharge(JsonNode config) {
-        if (!config.has("amount")) {
-            throw new RuntimeException("Flat surcharge missing 'amount' field");
-        }
+    public ChargeCalculationCache.CacheStats getCacheStats() {
+        return chargeCalculationCache.stats();
+    }
 
-        return BigDecimal.valueOf(config.get("amount").asDouble())
-                .setScale(2, RoundingMode.HALF_UP);
+    public ChargeTracer.TraceStats getTraceStats() {
+        return chargeTracer.stats();
     }
 
     /**
@@ -220,12 +133,14 @@ public class RateEngineService {
     public static class ChargeBreakdown {
         private BigDecimal usageCcf;
         private String ratePlanName;
+        private String ratePlanVersionId;
         private BigDecimal usageCharge = BigDecimal.ZERO;
         private BigDecimal baseFee = BigDecimal.ZERO;
         private BigDecimal totalSurcharges = BigDecimal.ZERO;
         private BigDecimal subtotal = BigDecimal.ZERO;
         private BigDecimal totalAmount = BigDecimal.ZERO;
         private List<LineItem> lineItems = new ArrayList<>();
+        private ChargeTrace trace;
 
         public void addLineItem(String description, BigDecimal amount, String category) {
             lineItems.add(new LineItem(description, amount, category));
@@ -237,6 +152,9 @@ public class RateEngineService {
         
         public String getRatePlanName() { return ratePlanName; }
         public void setRatePlanName(String ratePlanName) { this.ratePlanName = ratePlanName; }
+
+        public String getRatePlanVersionId() { return ratePlanVersionId; }
+        public void setRatePlanVersionId(String ratePlanVersionId) { this.ratePlanVersionId = ratePlanVersionId; }
         
         public BigDecimal getUsageCharge() { return usageCharge; }
         public void setUsageCharge(BigDecimal usageCharge) { this.usageCharge = usageCharge; }
@@ -256,6 +174,11 @@ public class RateEngineService {
         public List<LineItem> getLineItems() { return lineItems; }
         public void setLineItems(List<LineItem> lineItems) { this.lineItems = lineItems; }
 
+        /** Only present when a trace was requested for this calculation. */
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public ChargeTrace getTrace() { return trace; }
+        public void setTrace(ChargeTrace trace) { this.trace = trace; }
+
         public static class LineItem {
             private String description;
             private BigDecimal amount;
@@ -0,0 +1,266 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.BillingPeriod;
+import com.hydrospark.billing.model.Customer;
+import com.hydrospark.billing.model.RatePlan;
+import com.hydrospark.billing.repository.BillRepository;
+import com.hydrospark.billing.repository.BillingPeriodRepository;
+import com.hydrospark.billing.repository.RatePlanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Replays a candidate rate plan against the usage of already billed periods
+ * to show how it would change customers' bills before it is approved.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RateImpactService {
+
+    private static final int DEFAULT_PERIODS = 3;
+
+    // Upper bounds (exclusive) of the % change buckets; the last bucket is open-ended
+    private static final double[] BUCKET_BOUNDS = {-10, -5, 0, 5, 10, 25};
+    private static final String[] BUCKET_LABELS = {
+            "< -10%", "-10% to -5%", "-5% to 0%", "0% to 5%", "5% to 10%", "10% to 25%", ">= 25%"
+    };
+
+    private final RatePlanRepository ratePlanRepository;
+    private final BillingPeriodRepository billingPeriodRepository;
+    private final BillRepository billRepository;
+    private final RateEngineService rateEngineService;
+
+    /**
+     * Price the last {@code periods} billed periods of every cycle with the candidate plan
+     * and compare against what was actually billed
+     */
+    @Transactional(readOnly = true)
+    public ImpactReport analyze(String candidatePlanId, Integer periods) {
+        long started = System.currentTimeMillis();
+        int periodsPerCycle = (periods == null || periods < 1) ? DEFAULT_PERIODS : periods;
+
+        RatePlan candidate = ratePlanRepository.findById(candidatePlanId)
+                .orElseThrow(() -> new RuntimeException("Rate plan not found"));
+        CompiledRatePlan compiled = rateEngineService.compile(candidate);
+        List<Customer.CustomerType> customerTypes = customerTypesFor(candidate.getCustomerTypeScope());
+
+        log.info("Running rate impact analysis for plan {} over last {} billed periods per cycle",
+                candidate.getName(), periodsPerCycle);
+
+        List<BillingPeriod> billedPeriods = selectPeriods(periodsPerCycle);
+
+        // Many bills share the same usage at 0.01 CCF granularity; price each (usage, month) once
+        Map<Long, BigDecimal> priced = new HashMap<>();
+        Map<String, BigDecimal[]> byCustomer = new HashMap<>();
+        DoubleList billChanges = new DoubleList();
+        DoubleList billChangePercents = new DoubleList();
+
+        BigDecimal currentRevenue = BigDecimal.ZERO;
+        BigDecimal candidateRevenue = BigDecimal.ZERO;
+
+        for (BillingPeriod period : billedPeriods) {
+            LocalDate billingDate = period.getPeriodEndDate();
+            int month = billingDate.getMonthValue();
+
+            try (Stream<BillRepository.BilledUsage> rows = billRepository.streamBilledUsageForPeriod(
+                    period.getId(), period.getPeriodStartDate(), period.getPeriodEndDate(), customerTypes)) {
+
+                for (BillRepository.BilledUsage row : (Iterable<BillRepository.BilledUsage>) rows::iterator) {
+                    BigDecimal usage = row.getUsageCcf().setScale(2, RoundingMode.HALF_UP);
+                    BigDecimal current = row.getBilledAmount();
+
+                    long key = usage.unscaledValue().longValue() * 13 + month;
+                    BigDecimal proposed = priced.computeIfAbsent(key,
+                            k -> compiled.calculate(usage, billingDate).getTotalAmount());
+
+                    currentRevenue = currentRevenue.add(current);
+                    candidateRevenue = candidateRevenue.add(proposed);
+
+                    double change = proposed.subtract(current).doubleValue();
+                    billChanges.add(change);
+                    if (current.signum() > 0) {
+                        billChangePercents.add(change * 100.0 / current.doubleValue());
+                    }
+
+                    BigDecimal[] totals = byCustomer.computeIfAbsent(row.getCustomerId(),
+                            id -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                    totals[0] = totals[0].add(current);
+                    totals[1] = totals[1].add(proposed);
+                }
+            }
+        }
+
+        ImpactReport report = new ImpactReport();
+        report.setRatePlanId(candidate.getId());
+        report.setRatePlanName(candidate.getName());
+        report.setPeriodsAnalyzed(billedPeriods.size());
+        report.setBillsAnalyzed(billChanges.size());
+        report.setCustomersAnalyzed(byCustomer.size());
+        report.setCurrentRevenue(currentRevenue);
+        report.setCandidateRevenue(candidateRevenue);
+        report.setRevenueDelta(candidateRevenue.subtract(currentRevenue));
+        if (currentRevenue.signum() > 0) {
+            report.setRevenueDeltaPercent(candidateRevenue.subtract(currentRevenue)
+                    .multiply(BigDecimal.valueOf(100))
+                    .divide(currentRevenue, 2, RoundingMode.HALF_UP));
+        }
+
+        double[] changes = billChanges.sorted();
+        double[] percents = billChangePercents.sorted();
+        report.setMedianChange(money(percentile(changes, 50)));
+        report.setP95Change(money(percentile(changes, 95)));
+        report.setMedianChangePercent(money(percentile(percents, 50)));
+        report.setP95ChangePercent(money(percentile(percents, 95)));
+        report.setCustomersByChangeBucket(bucketCustomers(byCustomer));
+        report.setDurationMs(System.currentTimeMillis() - started);
+
+        log.info("Rate impact analysis complete: {} bills, revenue delta ${} in {} ms",
+                report.getBillsAnalyzed(), report.getRevenueDelta(), report.getDurationMs());
+
+        return report;
+    }
+
+    private List<BillingPeriod> selectPeriods(int periodsPerCycle) {
+        Map<Integer, Integer> takenPerCycle = new HashMap<>();
+        List<BillingPeriod> selected = new ArrayList<>();
+
+        for (BillingPeriod period : billingPeriodRepository.findByStatusOrderByPeriodEndDateDesc(BillingPeriod.Status.BILLED)) {
+            int taken = takenPerCycle.getOrDefault(period.getCycleNumber(), 0);
+            if (taken < periodsPerCycle) {
+                selected.add(period);
+                takenPerCycle.put(period.getCycleNumber(), taken + 1);
+            }
+        }
+
+        return selected;
+    }
+
+    private List<Customer.CustomerType> customerTypesFor(RatePlan.CustomerTypeScope scope) {
+        if (scope == RatePlan.CustomerTypeScope.RESIDENTIAL) {
+            return List.of(Customer.CustomerType.RESIDENTIAL);
+        }
+        if (scope == RatePlan.CustomerTypeScope.COMMERCIAL) {
+            return List.of(Customer.CustomerType.COMMERCIAL);
+        }
+        return List.of(Customer.CustomerType.values());
+    }
+
+    private Map<String, Long> bucketCustomers(Map<String, BigDecimal[]> byCustomer) {
+        long[] counts = new long[BUCKET_LABELS.length];
+
+        for (BigDecimal[] totals : byCustomer.values()) {
+            double current = totals[0].doubleValue();
+            double proposed = totals[1].doubleValue();
+            double percent = current > 0 ? (proposed - current) * 100.0 / current : 0.0;
+
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && percent >= BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            counts[bucket]++;
+        }
+
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            buckets.put(BUCKET_LABELS[i], counts[i]);
+        }
+        return buckets;
+    }
+
+    private static double percentile(double[] sorted, int p) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static BigDecimal money(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Growable primitive list so per-bill changes don't box
+     */
+    private static class DoubleList {
+        private double[] values = new double[1024];
+        private int size;
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() { return size; }
+
+        double[] sorted() {
+            double[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    public static class ImpactReport {
+        private String ratePlanId;
+        private String ratePlanName;
+        private int periodsAnalyzed;
+        private int billsAnalyzed;
+        private int customersAnalyzed;
+        private BigDecimal currentRevenue = BigDecimal.ZERO;
+        private BigDecimal candidateRevenue = BigDecimal.ZERO;
+        private BigDecimal revenueDelta = BigDecimal.ZERO;
+        private BigDecimal revenueDeltaPercent;
+        private BigDecimal medianChange;
+        private BigDecimal p95Change;
+        private BigDecimal medianChangePercent;
+        private BigDecimal p95ChangePercent;
+        private Map<String, Long> customersByChangeBucket;
+        private long durationMs;
+
+        // Getters and setters
+        public String getRatePlanId() { return ratePlanId; }
+        public void setRatePlanId(String ratePlanId) { this.ratePlanId = ratePlanId; }
+        public String getRatePlanName() { return ratePlanName; }
+        public void setRatePlanName(String ratePlanName) { this.ratePlanName = ratePlanName; }
+        public int getPeriodsAnalyzed() { return periodsAnalyzed; }
+        public void setPeriodsAnalyzed(int periodsAnalyzed) { this.periodsAnalyzed = periodsAnalyzed; }
+        public int getBillsAnalyzed() { return billsAnalyzed; }
+        public void setBillsAnalyzed(int billsAnalyzed) { this.billsAnalyzed = billsAnalyzed; }
+        public int getCustomersAnalyzed() { return customersAnalyzed; }
+        public void setCustomersAnalyzed(int customersAnalyzed) { this.customersAnalyzed = customersAnalyzed; }
+        public BigDecimal getCurrentRevenue() { return currentRevenue; }
+        public void setCurrentRevenue(BigDecimal currentRevenue) { this.currentRevenue = currentRevenue; }
+        public BigDecimal getCandidateRevenue() { return candidateRevenue; }
+        public void setCandidateRevenue(BigDecimal candidateRevenue) { this.candidateRevenue = candidateRevenue; }
+        public BigDecimal getRevenueDelta() { return revenueDelta; }
+        public void setRevenueDelta(BigDecimal revenueDelta) { this.revenueDelta = revenueDelta; }
+        public BigDecimal getRevenueDeltaPercent() { return revenueDeltaPercent; }
+        public void setRevenueDeltaPercent(BigDecimal revenueDeltaPercent) { this.revenueDeltaPercent = revenueDeltaPercent; }
+        public BigDecimal getMedianChange() { return medianChange; }
+        public void setMedianChange(BigDecimal medianChange) { this.medianChange = medianChange; }
+        public BigDecimal getP95Change() { return p95Change; }
+        public void setP95Change(BigDecimal p95Change) { this.p95Change = p95Change; }
+        public BigDecimal getMedianChangePercent() { return medianChangePercent; }
+        public void setMedianChangePercent(BigDecimal medianChangePercent) { this.medianChangePercent = medianChangePercent; }
+        public BigDecimal getP95ChangePercent() { return p95ChangePercent; }
+        public void setP95ChangePercent(BigDecimal p95ChangePercent) { this.p95ChangePercent = p95ChangePercent; }
+        public Map<String, Long> getCustomersByChangeBucket() { return customersByChangeBucket; }
+        public void setCustomersByChangeBucket(Map<String, Long> customersByChangeBucket) { this.customersByChangeBucket = customersByChangeBucket; }
+        public long getDurationMs() { return durationMs; }
+        public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+    }
+}
@@ -0,0 +1,187 @@
+package com.hydrospark.billing.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hydrospark.billing.model.RateComponent;
+import com.hydrospark.billing.model.RatePlan;
+import com.hydrospark.billing.model.RatePlanVersion;
+import com.hydrospark.billing.repository.RateComponentRepository;
+import com.hydrospark.billing.repository.RatePlanRepository;
+import com.hydrospark.billing.repository.RatePlanVersionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates immutable rate plan versions and serves them in compiled form.
+ * Because a version never changes, its compiled plan is cached for the life of the process. Which
+ * version is current is always read from the database, so a plan update on any node takes effect
+ * everywhere.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RatePlanVersionService {
+
+    private final RatePlanVersionRepository ratePlanVersionRepository;
+    private final RateComponentRepository rateComponentRepository;
+    private final RatePlanRepository ratePlanRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Compiled plans by version id; never invalidated
+    private final Map<String, CompiledRatePlan> compiledVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Give every plan that has no version yet its version 1, so bills priced before versions were
+     * recorded can be matched to one
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFirstVersions() {
+        int seeded = 0;
+        for (RatePlan plan : ratePlanRepository.findAll()) {
+            if (ratePlanVersionRepository.findTopByRatePlanIdOrderByVersionNumberAsc(plan.getId()).isPresent()) {
+                continue;
+            }
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> snapshot(plan));
+                seeded++;
+            } catch (Exception e) {
+                // Another node may have seeded the same plan concurrently (unique plan/version number)
+                log.warn("Could not seed first version of rate plan {}: {}", plan.getName(), e.getMessage());
+            }
+        }
+        if (seeded > 0) {
+            log.info("Seeded first versions for {} rate plans", seeded);
+        }
+    }
+
+    /**
+     * Snapshot the plan's current active components as its next version. A plan's first version is
+     * dated from the plan's effective start (if that is in the past), as it is the version that has
+     * been in force since then.
+     */
+    @Transactional
+    public RatePlanVersion snapshot(RatePlan plan) {
+        List<RateComponent> components = rateComponentRepository
+                .findByRatePlanIdAndIsActiveTrueOrderBySortOrderAsc(plan.getId());
+
+        int nextVersion = ratePlanVersionRepository.findTopByRatePlanIdOrderByVersionNumberDesc(plan.getId())
+                .map(v -> v.getVersionNumber() + 1)
+                .orElse(1);
+
+        RatePlanVersion version = RatePlanVersion.builder()
+                .ratePlanId(plan.getId())
+                .versionNumber(nextVersion)
+                .planName(plan.getName())
+                .effectiveStartDate(plan.getEffectiveStartDate())
+                .effectiveEndDate(plan.getEffectiveEndDate())
+                .componentsJson(writeComponents(components))
+                .build();
+        if (nextVersion == 1 && plan.getEffectiveStartDate() != null) {
+            LocalDateTime effectiveStart = plan.getEffectiveStartDate().atStartOfDay();
+            if (effectiveStart.isBefore(LocalDateTime.now())) {
+                version.setCreatedAt(effectiveStart);
+            }
+        }
+
+        version = ratePlanVersionRepository.save(version);
+
+        log.info("Rate plan {} snapshotted as version {}", plan.getName(), nextVersion);
+        return version;
+    }
+
+    /**
+     * Latest version of a plan; plans without one (created outside the API since startup) get their
+     * first snapshot here
+     */
+    @Transactional
+    public RatePlanVersion currentVersion(RatePlan plan) {
+        return ratePlanVersionRepository.findTopByRatePlanIdOrderByVersionNumberDesc(plan.getId())
+                .orElseGet(() -> snapshot(plan));
+    }
+
+    /**
+     * Id of the latest version, read without loading the version's components
+     */
+    public String currentVersionId(RatePlan plan) {
+        return ratePlanVersionRepository.findFirstByRatePlanIdOrderByVersionNumberDesc(plan.getId())
+                .map(RatePlanVersionRepository.VersionId::getId)
+                .orElseGet(() -> currentVersion(plan).getId());
+    }
+
+    /**
+     * Version that was in force at a point in time (for bills priced before versions were recorded).
+     * Falls back to the plan's first version when none predates the time.
+     */
+    public RatePlanVersion versionAsOf(String ratePlanId, LocalDateTime asOf) {
+        return ratePlanVersionRepository
+                .findTopByRatePlanIdAndCreatedAtLessThanEqualOrderByVersionNumberDesc(ratePlanId, asOf)
+                .or(() -> ratePlanVersionRepository.findTopByRatePlanIdOrderByVersionNumberAsc(ratePlanId))
+                .orElseThrow(() -> new RuntimeException("Rate plan has no versions: " + ratePlanId));
+    }
+
+    public List<RatePlanVersion> listVersions(String ratePlanId) {
+        return ratePlanVersionRepository.findByRatePlanIdOrderByVersionNumberDesc(ratePlanId);
+    }
+
+    /**
+     * Compiled form of a version, loaded from the database at most once per process
+     */
+    public CompiledRatePlan compiled(String versionId) {
+        return compiledVersions.computeIfAbsent(versionId, id -> {
+            RatePlanVersion version = ratePlanVersionRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Rate plan version not found: " + id));
+            return compile(version);
+        });
+    }
+
+    private CompiledRatePlan compile(RatePlanVersion version) {
+        List<RateComponent> components = readComponents(version.getComponentsJson()).stream()
+                .map(c -> RateComponent.builder()
+                        .ratePlanId(version.getRatePlanId())
+                        .componentType(RateComponent.ComponentType.valueOf(c.componentType()))
+                        .name(c.name())
+                        .configJson(c.configJson())
+                        .sortOrder(c.sortOrder())
+                        .isActive(true)
+                        .build())
+                .toList();
+
+        return CompiledRatePlan.compile(version.getRatePlanId(), version.getId(), version.getPlanName(),
+                components, objectMapper);
+    }
+
+    private String writeComponents(List<RateComponent> components) {
+        List<ComponentSnapshot> snapshots = components.stream()
+                .map(c -> new ComponentSnapshot(c.getComponentType().name(), c.getName(),
+                        c.getConfigJson(), c.getSortOrder()))
+                .toList();
+        try {
+            return objectMapper.writeValueAsString(snapshots);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to snapshot rate plan components: " + e.getMessage());
+        }
+    }
+
+    private List<ComponentSnapshot> readComponents(String json) {
+        try {
+            return objectMapper.readValue(json, new TypeReference<List<ComponentSnapshot>>() {});
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Corrupt rate plan version snapshot: " + e.getMessage());
+        }
+    }
+
+    record ComponentSnapshot(String componentType, String name, String configJson, Integer sortOrder) {}
+}
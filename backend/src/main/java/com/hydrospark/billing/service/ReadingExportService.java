@@ -0,0 +1,197 @@
+package com.hydrospark.billing.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes meter readings straight from a forward-only result set to an output stream as CSV or NDJSON,
+ * optionally gzip-compressed. Each row is formatted and written as it arrives, so memory use does not
+ * depend on the size of the export.
+ */
+@Service
+@Slf4j
+public class ReadingExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER =
+            "reading_id,meter_id,external_location_id,customer_id,reading_date,usage_ccf,source,ingested_at\n";
+
+    private final MeterReadingRepository meterReadingRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    // Rows are separated by the newline written after each one, not by Jackson's default space
+    private final JsonFactory jsonFactory = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .setRootValueSeparator(null);
+
+    public ReadingExportService(MeterReadingRepository meterReadingRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.meterReadingRepository = meterReadingRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public enum Scope { METER, CUSTOMER, CYCLE, ALL }
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+
+    /**
+     * What to export. {@code id} is the meter or customer id for those scopes, the cycle number for CYCLE,
+     * and unused for ALL.
+     */
+    public record ExportRequest(Scope scope, String id, LocalDate startDate, LocalDate endDate,
+                                Format format, boolean gzip) {
+
+        public ExportRequest {
+            if (scope != Scope.ALL && (id == null || id.isBlank())) {
+                throw new IllegalArgumentException("An id is required to export a " + scope.name().toLowerCase());
+            }
+            if (scope == Scope.CYCLE && !id.matches("\\d+")) {
+                throw new IllegalArgumentException("Cycle number must be numeric");
+            }
+            if (startDate.isAfter(endDate)) {
+                throw new IllegalArgumentException("Start date must not be after end date");
+            }
+        }
+
+        public String fileName() {
+            String name = "readings-" + scope.name().toLowerCase() + (scope == Scope.ALL ? "" : "-" + id)
+                    + "-" + startDate + "-" + endDate + "." + format.getExtension();
+            return gzip ? name + ".gz" : name;
+        }
+    }
+
+    /**
+     * Stream the requested readings to {@code out}; returns the number of rows written.
+     * The caller owns {@code out} and closes it.
+     */
+    public long export(ExportRequest request, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        GZIPOutputStream gzip = request.gzip() ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzip != null ? gzip : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        Long rows;
+        try {
+            rows = readOnlyTransaction.execute(status -> {
+                try (Stream<MeterReadingRepository.ExportRow> stream = open(request)) {
+                    return request.format() == Format.CSV
+                            ? writeCsv(stream.iterator(), writer)
+                            : writeNdjson(stream.iterator(), writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        log.info("Exported {} readings ({} {}, {} to {}) as {} in {} ms", rows, request.scope(),
+                request.id() != null ? request.id() : "", request.startDate(), request.endDate(),
+                request.format(), System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    private Stream<MeterReadingRepository.ExportRow> open(ExportRequest request) {
+        return switch (request.scope()) {
+            case METER -> meterReadingRepository.streamExportForMeter(
+                    request.id(), request.startDate(), request.endDate());
+            case CUSTOMER -> meterReadingRepository.streamExportForCustomer(
+                    request.id(), request.startDate(), request.endDate());
+            case CYCLE -> meterReadingRepository.streamExportForCycle(
+                    Integer.valueOf(request.id()), request.startDate(), request.endDate());
+            case ALL -> meterReadingRepository.streamExportAll(request.startDate(), request.endDate());
+        };
+    }
+
+    private long writeCsv(Iterator<MeterReadingRepository.ExportRow> rows, Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        StringBuilder line = new StringBuilder(256);
+        long count = 0;
+        while (rows.hasNext()) {
+            MeterReadingRepository.ExportRow row = rows.next();
+            line.setLength(0);
+            line.append(row.getId()).append(',')
+                    .append(row.getMeterId()).append(',');
+            appendCsvField(line, row.getExternalLocationId());
+            line.append(',').append(row.getCustomerId())
+                    .append(',').append(row.getReadingDate())
+                    .append(',').append(row.getUsageCcf().toPlainString())
+                    .append(',').append(row.getSource() != null ? row.getSource().name() : "")
+                    .append(',').append(row.getIngestedAt() != null ? row.getIngestedAt().toString() : "")
+                    .append('\n');
+            writer.append(line);
+            count++;
+        }
+        return count;
+    }
+
+    private long writeNdjson(Iterator<MeterReadingRepository.ExportRow> rows, Writer writer) throws IOException {
+        long count = 0;
+        try (JsonGenerator json = jsonFactory.createGenerator(writer)) {
+            while (rows.hasNext()) {
+                MeterReadingRepository.ExportRow row = rows.next();
+                json.writeStartObject();
+                json.writeStringField("readingId", row.getId());
+                json.writeStringField("meterId", row.getMeterId());
+                json.writeStringField("externalLocationId", row.getExternalLocationId());
+                json.writeStringField("customerId", row.getCustomerId());
+                json.writeStringField("readingDate", row.getReadingDate().toString());
+                json.writeFieldName("usageCcf");
+                json.writeNumber(row.getUsageCcf());
+                json.writeStringField("source", row.getSource() != null ? row.getSource().name() : null);
+                json.writeStringField("ingestedAt", row.getIngestedAt() != null ? row.getIngestedAt().toString() : null);
+                json.writeEndObject();
+                json.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Quote a free-text field when it contains a delimiter, quote or line break
+     */
+    private static void appendCsvField(StringBuilder line, String value) {
+        if (value == null) return;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,293 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.MeterReading;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * The last app.reading-store.days days of readings for every meter, held column-wise in memory.
+ *
+ * Each meter gets a dense ordinal and a fixed block of day slots in three flat arrays: the epoch day
+ * a slot holds, the usage in hundredths of a CCF (the column's scale) and the source ordinal. A
+ * reading goes to slot epochDay % days of its meter's block, so newer days overwrite the ones that
+ * fell out of the window and nothing is ever evicted explicitly. That is 9 bytes per reading, against
+ * a few hundred for a MeterReading entity.
+ *
+ * Filled from all meters' stored readings at startup and from committed readings afterwards. Every few
+ * minutes readings ingested since the last pass are read back from meter_readings, which picks up
+ * readings written on other nodes or by bulk loads; a nightly reload into fresh columns drops deleted
+ * readings and picks up corrections made outside ingest. Until the first load has finished, and for
+ * ranges reaching back before the window, reads return null and callers go to meter_readings.
+ * Reading ids and ingest timestamps are not kept, so the store only serves internal read paths,
+ * never API responses.
+ */
+@Component
+@Slf4j
+public class RecentReadingStore {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+    private static final MeterReading.ReadingSource[] SOURCES = MeterReading.ReadingSource.values();
+    // Passes overlap so readings committed while the previous pass ran are not missed
+    private static final int CATCH_UP_OVERLAP_MINUTES = 2;
+
+    private final MeterReadingRepository meterReadingRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final boolean enabled;
+    private final int days;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Columns columns;
+
+    private volatile boolean ready;
+    // Readings ingested up to here are in the store; null until the first load
+    private volatile LocalDateTime caughtUpThrough;
+
+    public RecentReadingStore(
+            MeterReadingRepository meterReadingRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.reading-store.enabled:true}") boolean enabled,
+            @Value("${app.reading-store.days:120}") int days) {
+        this.meterReadingRepository = meterReadingRepository;
+        this.transactionManager = transactionManager;
+        this.enabled = enabled;
+        this.days = Math.max(1, days);
+        this.columns = new Columns(this.days, 1024);
+    }
+
+    /**
+     * Load the window from meter_readings into fresh columns and swap them in. Runs at startup and
+     * nightly at 1:20 AM.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 20 1 * * *")
+    public void reload() {
+        if (!enabled) return;
+        long started = System.currentTimeMillis();
+        LocalDate since = oldestDay();
+        LocalDateTime loadStartedAt = LocalDateTime.now().minusMinutes(CATCH_UP_OVERLAP_MINUTES);
+
+        Columns fresh = new Columns(days, Math.max(1024, meters()));
+        try {
+            Integer loaded = readOnlyTransaction().execute(status -> {
+                int rows = 0;
+                try (Stream<MeterReadingRepository.DailyReading> stream = meterReadingRepository.streamReadingsSince(since)) {
+                    Iterator<MeterReadingRepository.DailyReading> it = stream.iterator();
+                    while (it.hasNext()) {
+                        MeterReadingRepository.DailyReading row = it.next();
+                        fresh.put(row.getMeterId(), row.getReadingDate(), row.getUsageCcf(), row.getSource());
+                        rows++;
+                    }
+                }
+                return rows;
+            });
+
+            lock.writeLock().lock();
+            try {
+                columns = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            caughtUpThrough = loadStartedAt;
+            ready = true;
+            log.info("Recent reading store loaded {} readings of {} meters since {} in {} ms",
+                    loaded, meters(), since, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Could not load recent reading store: {}", e.getMessage());
+        }
+        // Readings committed during the load went to the replaced columns
+        catchUp();
+    }
+
+    /**
+     * Add readings ingested since the previous pass, whichever node or path wrote them
+     */
+    @Scheduled(fixedDelayString = "${app.reading-store.catch-up-interval-ms:300000}")
+    public void catchUp() {
+        LocalDateTime ingestedAfter = caughtUpThrough;
+        if (!enabled || ingestedAfter == null) return;
+        LocalDateTime passStartedAt = LocalDateTime.now().minusMinutes(CATCH_UP_OVERLAP_MINUTES);
+
+        try {
+            Integer added = readOnlyTransaction().execute(status -> {
+                int rows = 0;
+                try (Stream<MeterReadingRepository.DailyReading> stream =
+                             meterReadingRepository.streamReadingsIngestedAfter(ingestedAfter, oldestDay())) {
+                    Iterator<MeterReadingRepository.DailyReading> it = stream.iterator();
+                    while (it.hasNext()) {
+                        MeterReadingRepository.DailyReading row = it.next();
+                        put(row.getMeterId(), row.getReadingDate(), row.getUsageCcf(), row.getSource());
+                        rows++;
+                    }
+                }
+                return rows;
+            });
+            caughtUpThrough = passStartedAt;
+            log.debug("Recent reading store caught up with {} readings", added);
+        } catch (Exception e) {
+            log.error("Could not catch up recent reading store: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Store a committed reading; runs ahead of listeners that read the store for the same event
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingIngested(MeterReadingIngestedEvent event) {
+        if (!enabled || event.usageCcf() == null) return;
+        put(event.meterId(), event.readingDate(), event.usageCcf(), event.source());
+    }
+
+    /**
+     * Whether reads starting at this date can be answered from memory
+     */
+    public boolean covers(LocalDate from) {
+        return ready && !from.isBefore(oldestDay());
+    }
+
+    /**
+     * Readings of a meter over an inclusive date range in date order, or null when the store cannot answer
+     * and the caller should read meter_readings instead. A meter without readings in the window gets an empty list.
+     */
+    public List<DailyReading> read(String meterId, LocalDate from, LocalDate to) {
+        if (!covers(from)) return null;
+        LocalDate today = LocalDate.now();
+        int first = (int) from.toEpochDay();
+        int last = (int) (to.isAfter(today) ? today : to).toEpochDay();
+
+        List<DailyReading> readings = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Integer ordinal = columns.meterIndex.get(meterId);
+            if (ordinal == null) return readings;
+            int base = ordinal * days;
+            for (int day = first; day <= last; day++) {
+                int slot = base + day % days;
+                if (columns.epochDays[slot] == day) {
+                    readings.add(columns.toReading(meterId, slot));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return readings;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int meters() {
+        lock.readLock().lock();
+        try {
+            return columns.meterIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Store one reading in the live columns
+     */
+    private void put(String meterId, LocalDate readingDate, BigDecimal usageCcf, MeterReading.ReadingSource source) {
+        lock.writeLock().lock();
+        try {
+            columns.put(meterId, readingDate, usageCcf, source);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        return readOnlyTransaction;
+    }
+
+    private LocalDate oldestDay() {
+        return LocalDate.now().minusDays(days - 1);
+    }
+
+    /**
+     * Meter ordinals and the three day-slot columns. Not thread-safe: the live instance is guarded by
+     * the store's lock, a reload fills a private one before swapping it in.
+     */
+    private static final class Columns {
+        final int days;
+        final Map<String, Integer> meterIndex = new HashMap<>();
+        int[] epochDays;
+        int[] usageHundredths;
+        byte[] sources;
+
+        Columns(int days, int meterCapacity) {
+            this.days = days;
+            allocate(meterCapacity);
+        }
+
+        /**
+         * Store one reading; days outside the window (or in the future) are ignored
+         */
+        void put(String meterId, LocalDate readingDate, BigDecimal usageCcf, MeterReading.ReadingSource source) {
+            int day = (int) readingDate.toEpochDay();
+            int today = (int) LocalDate.now().toEpochDay();
+            if (day > today || day <= today - days) return;
+
+            Integer ordinal = meterIndex.get(meterId);
+            if (ordinal == null) {
+                ordinal = meterIndex.size();
+                if ((ordinal + 1) * days > epochDays.length) {
+                    allocate(Math.max(ordinal + 1, epochDays.length / days * 2));
+                }
+                meterIndex.put(meterId, ordinal);
+            }
+            int slot = ordinal * days + day % days;
+            epochDays[slot] = day;
+            usageHundredths[slot] = usageCcf.movePointRight(2).intValue();
+            sources[slot] = (byte) (source != null ? source.ordinal() : -1);
+        }
+
+        /**
+         * Grow the columns to hold the given number of meters
+         */
+        void allocate(int meterCapacity) {
+            int size = meterCapacity * days;
+            int previous = epochDays == null ? 0 : epochDays.length;
+            epochDays = epochDays == null ? new int[size] : Arrays.copyOf(epochDays, size);
+            usageHundredths = usageHundredths == null ? new int[size] : Arrays.copyOf(usageHundredths, size);
+            sources = sources == null ? new byte[size] : Arrays.copyOf(sources, size);
+            Arrays.fill(epochDays, previous, size, EMPTY);
+        }
+
+        DailyReading toReading(String meterId, int slot) {
+            byte source = sources[slot];
+            return new DailyReading(meterId, LocalDate.ofEpochDay(epochDays[slot]),
+                    BigDecimal.valueOf(usageHundredths[slot], 2), source >= 0 ? SOURCES[source] : null);
+        }
+    }
+
+    public record DailyReading(String meterId, LocalDate readingDate, BigDecimal usageCcf,
+                               MeterReading.ReadingSource source) {}
+}
@@ -0,0 +1,135 @@
+package com.hydrospark.billing.service;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Robust per-meter usage baseline: exponentially weighted mean and variance of daily usage for each
+ * calendar month and each day of week. Expected usage for a date is the month level scaled by the
+ * day-of-week factor, so a July irrigation ramp is compared with past Julys rather than the last 90 days.
+ *
+ * Packed as 19 slots x (mean, variance, count) floats, 228 bytes per meter. Not thread-safe;
+ * UsageBaselineService synchronizes on the instance.
+ */
+public class SeasonalBaseline {
+
+    private static final int MONTH_SLOTS = 12;
+    private static final int DOW_SLOTS = 7;
+    private static final int SLOTS = MONTH_SLOTS + DOW_SLOTS;
+    static final int ENCODED_BYTES = SLOTS * 3 * Float.BYTES;
+
+    // Smoothing horizons: roughly the last two Julys for a month slot, the last half year for a weekday
+    private static final double MONTH_ALPHA = 1.0 / 60;
+    private static final double DOW_ALPHA = 1.0 / 26;
+
+    // A month slot needs this many days before it is trusted over the plain 90-day statistics
+    static final int MIN_MONTH_SAMPLES = 14;
+
+    private final float[] mean = new float[SLOTS];
+    private final float[] variance = new float[SLOTS];
+    private final float[] count = new float[SLOTS];
+    private LocalDate throughDate;
+
+    /**
+     * Fold in one daily reading. Readings on or before the last folded date are ignored,
+     * so replaying a range is harmless.
+     */
+    public boolean observe(LocalDate date, double usage) {
+        if (throughDate != null && !date.isAfter(throughDate)) {
+            return false;
+        }
+        update(date.getMonthValue() - 1, usage, MONTH_ALPHA);
+        update(MONTH_SLOTS + date.getDayOfWeek().getValue() - 1, usage, DOW_ALPHA);
+        throughDate = date;
+        return true;
+    }
+
+    /**
+     * Whether the month of this date has enough history to be used
+     */
+    public boolean covers(LocalDate date) {
+        return count[date.getMonthValue() - 1] >= MIN_MONTH_SAMPLES;
+    }
+
+    /**
+     * Expected daily usage on a date (CCF)
+     */
+    public double expected(LocalDate date) {
+        return mean[date.getMonthValue() - 1] * dayOfWeekFactor(date);
+    }
+
+    /**
+     * Standard deviation of daily usage in the month of this date, scaled like {@link #expected}
+     */
+    public double stdDev(LocalDate date) {
+        return Math.sqrt(variance[date.getMonthValue() - 1]) * dayOfWeekFactor(date);
+    }
+
+    /**
+     * Expected total usage over an inclusive date range, from whatever months have history
+     */
+    public double expectedTotal(LocalDate from, LocalDate to) {
+        double total = 0;
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            total += expected(d);
+        }
+        return total;
+    }
+
+    public double monthMean(int month) {
+        return mean[month - 1];
+    }
+
+    public int monthSamples(int month) {
+        return (int) count[month - 1];
+    }
+
+    /**
+     * Multiplier of a weekday relative to the average weekday (1.0 until weekdays have history)
+     */
+    public double dayOfWeekFactor(LocalDate date) {
+        int slot = MONTH_SLOTS + date.getDayOfWeek().getValue() - 1;
+        double sum = 0;
+        for (int i = MONTH_SLOTS; i < SLOTS; i++) {
+            if (count[i] == 0) return 1.0;
+            sum += mean[i];
+        }
+        double average = sum / DOW_SLOTS;
+        return average > 0 ? mean[slot] / average : 1.0;
+    }
+
+    public LocalDate getThroughDate() {
+        return throughDate;
+    }
+
+    private void update(int slot, double x, double alpha) {
+        // Plain running mean while a slot warms up, then exponentially weighted
+        count[slot]++;
+        double a = Math.max(alpha, 1.0 / count[slot]);
+        double delta = x - mean[slot];
+        mean[slot] += (float) (a * delta);
+        variance[slot] = (float) ((1 - a) * (variance[slot] + a * delta * delta));
+    }
+
+    public byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES);
+        for (int i = 0; i < SLOTS; i++) {
+            buffer.putFloat(mean[i]).putFloat(variance[i]).putFloat(count[i]);
+        }
+        return buffer.array();
+    }
+
+    public static SeasonalBaseline decode(byte[] bytes, LocalDate throughDate) {
+        SeasonalBaseline baseline = new SeasonalBaseline();
+        if (bytes != null && bytes.length == ENCODED_BYTES) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            for (int i = 0; i < SLOTS; i++) {
+                baseline.mean[i] = buffer.getFloat();
+                baseline.variance[i] = buffer.getFloat();
+                baseline.count[i] = buffer.getFloat();
+            }
+            baseline.throughDate = throughDate;
+        }
+        return baseline;
+    }
+}
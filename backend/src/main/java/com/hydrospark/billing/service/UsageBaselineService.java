@@ -0,0 +1,274 @@
+package com.hydrospark.billing.service;
+
+import com.hydrospark.billing.model.UsageBaseline;
+import com.hydrospark.billing.repository.MeterReadingRepository;
+import com.hydrospark.billing.repository.UsageBaselineRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a SeasonalBaseline per meter, in memory for single-lookup reads and in usage_baselines
+ * for restarts. Baselines are updated as readings are ingested and caught up nightly (before the
+ * anomaly scan) with any readings that arrived another way, e.g. bulk imports; a weekly rebuild
+ * takes in late and backfilled readings.
+ */
+@Service
+@Slf4j
+public class UsageBaselineService {
+
+    // Enough history for every month slot to warm up
+    private static final int HISTORY_DAYS = 400;
+
+    private static final int REFRESH_OVERLAP_MINUTES = 10;
+
+    private final UsageBaselineRepository usageBaselineRepository;
+    private final MeterReadingRepository meterReadingRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final int writeBatchSize;
+    private final DayOfWeek rebuildDay;
+
+    private final Map<String, SeasonalBaseline> baselines = new ConcurrentHashMap<>();
+
+    // Readings ingested up to here have been through a refresh on this node; null until the first one
+    private volatile LocalDateTime refreshedThrough;
+
+    public UsageBaselineService(
+            UsageBaselineRepository usageBaselineRepository,
+            MeterReadingRepository meterReadingRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.anomaly-detection.write-batch-size:500}") int writeBatchSize,
+            @Value("${app.anomaly-detection.baseline-rebuild-day:SUNDAY}") DayOfWeek rebuildDay) {
+        this.usageBaselineRepository = usageBaselineRepository;
+        this.meterReadingRepository = meterReadingRepository;
+        this.writeBatchSize = Math.max(1, writeBatchSize);
+        this.rebuildDay = rebuildDay;
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Writes must not share the connection of a streaming read
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Baseline of a meter, or null if it has no history yet
+     */
+    public SeasonalBaseline get(String meterId) {
+        return baselines.get(meterId);
+    }
+
+    /**
+     * Expected usage of a meter over an inclusive date range, or null without a baseline
+     */
+    public Double expectedUsage(String meterId, LocalDate from, LocalDate to) {
+        SeasonalBaseline baseline = baselines.get(meterId);
+        if (baseline == null) return null;
+        synchronized (baseline) {
+            return baseline.expectedTotal(from, to);
+        }
+    }
+
+    /**
+     * Readable summary of a meter's baseline, or null without one
+     */
+    public BaselineProfile profile(String meterId) {
+        SeasonalBaseline baseline = baselines.get(meterId);
+        if (baseline == null) return null;
+
+        BaselineProfile profile = new BaselineProfile();
+        profile.setMeterId(meterId);
+        synchronized (baseline) {
+            profile.setThroughDate(baseline.getThroughDate());
+            for (int month = 1; month <= 12; month++) {
+                profile.getMonthlyMeanCcf().put(Month.of(month).name(), round(baseline.monthMean(month)));
+                profile.getMonthlySamples().put(Month.of(month).name(), baseline.monthSamples(month));
+            }
+            // Any week works for weekday factors; use the one starting on a Monday
+            LocalDate monday = LocalDate.of(2024, 1, 1);
+            for (int d = 0; d < 7; d++) {
+                LocalDate date = monday.plusDays(d);
+                profile.getDayOfWeekFactors().put(date.getDayOfWeek().name(), round(baseline.dayOfWeekFactor(date)));
+            }
+        }
+        return profile;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            usageBaselineRepository.findAll().forEach(row ->
+                    baselines.put(row.getMeterId(), SeasonalBaseline.decode(row.getStats(), row.getThroughDate())));
+            log.info("Loaded {} usage baselines", baselines.size());
+        } catch (Exception e) {
+            log.error("Could not load usage baselines: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fold a newly committed reading into its meter's baseline
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReadingIngested(MeterReadingIngestedEvent event) {
+        if (event.usageCcf() == null) return;
+
+        SeasonalBaseline baseline = baselines.computeIfAbsent(event.meterId(), id -> new SeasonalBaseline());
+        UsageBaseline row;
+        synchronized (baseline) {
+            if (!baseline.observe(event.readingDate(), event.usageCcf().doubleValue())) return;
+            row = toRow(event.meterId(), baseline);
+        }
+        try {
+            writeTransaction.executeWithoutResult(status -> usageBaselineRepository.save(row));
+        } catch (Exception e) {
+            log.error("Failed to store usage baseline for meter {}: {}", event.meterId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Catch baselines up with readings that arrived without an ingest event, e.g. bulk imports.
+     * Nightly only the readings ingested since the previous run are read; readings dated on or before
+     * a meter's baseline date are skipped there, so once a week (and on a node's first run) every
+     * baseline is rebuilt from scratch from the last HISTORY_DAYS of readings, in date order.
+     * Scheduled daily at 1:30 AM, ahead of anomaly detection.
+     */
+    @Scheduled(cron = "0 30 1 * * *")
+    public void refresh() {
+        long started = System.currentTimeMillis();
+        // Overlap runs so readings committed while the previous run streamed are not missed
+        LocalDateTime nextRefreshedThrough = LocalDateTime.now().minusMinutes(REFRESH_OVERLAP_MINUTES);
+
+        if (refreshedThrough == null || LocalDate.now().getDayOfWeek() == rebuildDay) {
+            LocalDate since = LocalDate.now().minusDays(HISTORY_DAYS);
+            int[] counts = fold(() -> meterReadingRepository.streamActiveMeterUsageSince(since), true);
+            log.info("Usage baselines rebuilt: {} meters in {} ms", counts[0], System.currentTimeMillis() - started);
+        } else {
+            LocalDateTime ingestedAfter = refreshedThrough;
+            int[] counts = fold(() -> meterReadingRepository.streamActiveMeterUsageIngestedAfter(ingestedAfter), false);
+            log.info("Usage baselines refreshed: {} meters updated, {} late readings left to the weekly rebuild, in {} ms",
+                    counts[0], counts[1], System.currentTimeMillis() - started);
+        }
+        refreshedThrough = nextRefreshedThrough;
+    }
+
+    /**
+     * Fold streamed readings (ordered by meter then date) into baselines and store the ones that
+     * changed. From scratch, each meter gets a new baseline that replaces the old one once complete.
+     * Returns the number of meters updated and of readings skipped as already covered.
+     */
+    private int[] fold(Supplier<Stream<MeterReadingRepository.MeterUsage>> query, boolean fromScratch) {
+        int[] counts = new int[2];
+        List<UsageBaseline> pending = new ArrayList<>(writeBatchSize);
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<MeterReadingRepository.MeterUsage> rows = query.get()) {
+                String meterId = null;
+                SeasonalBaseline baseline = null;
+                boolean changed = false;
+
+                Iterator<MeterReadingRepository.MeterUsage> it = rows.iterator();
+                while (it.hasNext()) {
+                    MeterReadingRepository.MeterUsage row = it.next();
+                    if (!row.getMeterId().equals(meterId)) {
+                        if (changed) {
+                            complete(meterId, baseline, fromScratch, pending);
+                            counts[0]++;
+                        }
+                        meterId = row.getMeterId();
+                        baseline = fromScratch
+                                ? new SeasonalBaseline()
+                                : baselines.computeIfAbsent(meterId, id -> new SeasonalBaseline());
+                        changed = false;
+                    }
+                    boolean folded;
+                    synchronized (baseline) {
+                        folded = baseline.observe(row.getReadingDate(), row.getUsageCcf().doubleValue());
+                    }
+                    if (folded) {
+                        changed = true;
+                    } else {
+                        counts[1]++;
+                    }
+                }
+                if (changed) {
+                    complete(meterId, baseline, fromScratch, pending);
+                    counts[0]++;
+                }
+            }
+        });
+        flush(pending);
+        return counts;
+    }
+
+    private void complete(String meterId, SeasonalBaseline baseline, boolean fromScratch, List<UsageBaseline> pending) {
+        if (fromScratch) {
+            baselines.put(meterId, baseline);
+        }
+        pending.add(snapshot(meterId, baseline));
+        if (pending.size() >= writeBatchSize) flush(pending);
+    }
+
+    private void flush(List<UsageBaseline> pending) {
+        if (pending.isEmpty()) return;
+        List<UsageBaseline> batch = List.copyOf(pending);
+        pending.clear();
+        writeTransaction.executeWithoutResult(status -> usageBaselineRepository.saveAll(batch));
+    }
+
+    private static UsageBaseline snapshot(String meterId, SeasonalBaseline baseline) {
+        synchronized (baseline) {
+            return toRow(meterId, baseline);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static UsageBaseline toRow(String meterId, SeasonalBaseline baseline) {
+        return UsageBaseline.builder()
+                .meterId(meterId)
+                .stats(baseline.encode())
+                .throughDate(baseline.getThroughDate())
+                .build();
+    }
+
+    public static class BaselineProfile {
+        private String meterId;
+        private LocalDate throughDate;
+        private Map<String, Double> monthlyMeanCcf = new LinkedHashMap<>();
+        private Map<String, Integer> monthlySamples = new LinkedHashMap<>();
+        private Map<String, Double> dayOfWeekFactors = new LinkedHashMap<>();
+
+        // Getters and setters
+        public String getMeterId() { return meterId; }
+        public void setMeterId(String meterId) { this.meterId = meterId; }
+        public LocalDate getThroughDate() { return throughDate; }
+        public void setThroughDate(LocalDate throughDate) { this.throughDate = throughDate; }
+        public Map<String, Double> getMonthlyMeanCcf() { return monthlyMeanCcf; }
+        public Map<String, Integer> getMonthlySamples() { return monthlySamples; }
+        public Map<String, Double> getDayOfWeekFactors() { return dayOfWeekFactors; }
+    }
+}
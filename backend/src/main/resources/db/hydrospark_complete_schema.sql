@@ -484,3 +484,13 @@ CREATE TABLE audit_logs (
     INDEX idx_entity (entity_type, entity_id),
     INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ==============================================
+-- MIGRATIONS FOR EXISTING DATABASES
+-- ==============================================
+-- Not part of a fresh install: run by hand against a database whose tables were created by an
+-- earlier version of the backend (spring.jpa.hibernate.ddl-auto=update never alters a column type).
+
+-- usage_forecasts.method was created as ENUM('SIMPLE_AVG','SEASONAL_AVG','TREND_BASED'), which
+-- rejects HOLT_WINTERS forecasts. Widen it to the VARCHAR(20) the entity now declares:
+-- ALTER TABLE usage_forecasts MODIFY method VARCHAR(20) NOT NULL;
@@ -41,6 +41,7 @@ interface AnomalyEventDTO {
 
 export default function AnomaliesTab() {
   const [anomalies, setAnomalies] = useState<AnomalyEventDTO[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const [success, setSuccess] = useState<string | null>(null);
@@ -60,12 +61,18 @@ export default function AnomaliesTab() {
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, [statusFilter, severityFilter]);
 
-  const loadAnomalies = async () => {
+  const loadAnomalies = async (cursor?: string) => {
     setLoading(true);
     setError(null);
     try {
-      const data = await staffService.listAnomalies(statusFilter || undefined, severityFilter || undefined);
-      setAnomalies(data as AnomalyEventDTO[]);
+      const page = await staffService.listAnomaliesPage(
+        statusFilter || undefined,
+        severityFilter || undefined,
+        cursor
+      );
+      const items = page.items as AnomalyEventDTO[];
+      setAnomalies((prev) => (cursor ? [...prev, ...items] : items));
+      setNextCursor(page.nextCursor);
     } catch (e: any) {
       setError(e?.response?.data?.message || e?.message || 'Failed to load anomalies');
     } finally {
@@ -194,7 +201,7 @@ export default function AnomaliesTab() {
           </Select>
         </FormControl>
 
-        <Button variant="outlined" onClick={loadAnomalies}>
+        <Button variant="outlined" onClick={() => loadAnomalies()}>
           Refresh
         </Button>
       </Stack>
@@ -283,6 +290,14 @@ export default function AnomaliesTab() {
         </Table>
       </TableContainer>
 
+      {nextCursor && (
+        <Box sx={{ display: 'flex', justifyContent: 'center', mt: 2 }}>
+          <Button variant="outlined" onClick={() => loadAnomalies(nextCursor)} disabled={loading}>
+            Load more
+          </Button>
+        </Box>
+      )}
+
       {/* Resolve/Dismiss Dialog */}
       <Dialog open={resolveDialog} onClose={() => setResolveDialog(false)} maxWidth="sm" fullWidth>
         <DialogTitle>Manage Anomaly</DialogTitle>
@@ -31,6 +31,13 @@ export interface MeterReadingDTO {
   ingestedAt: string;
 }
 
+export interface UsagePointDTO {
+  periodStart: string; // ISO date
+  periodEnd: string;   // ISO date
+  usageCcf: string;    // BigDecimal as string
+  readings: number;
+}
+
 export interface UsageDataPoint {
   date: string;
   usageCcf: number;
@@ -106,17 +113,20 @@ export const customerService = {
     const formatDate = (d: Date) => d.toISOString().split('T')[0];
 
     try {
-      const res = await api.get<MeterReadingDTO[]>(`/api/meter-readings/customer/${customerId}`, {
+      // Summed across meters on the server; long ranges come back as weekly or monthly totals
+      const granularity = days > 730 ? 'MONTHLY' : days > 180 ? 'WEEKLY' : 'DAILY';
+      const res = await api.get<UsagePointDTO[]>(`/api/meter-readings/customer/${customerId}/usage`, {
         params: {
           startDate: formatDate(startDate),
           endDate: formatDate(endDate),
+          granularity,
         },
       });
 
       // Convert to chart data points
-      return res.data.map(reading => ({
-        date: reading.readingDate,
-        usageCcf: Number(reading.usageCcf),
+      return res.data.map(point => ({
+        date: point.periodStart,
+        usageCcf: Number(point.usageCcf),
       }));
     } catch (e) {
       console.error('Error fetching usage history:', e);
@@ -114,13 +114,19 @@ export const staffService = {
     return res.data;
   },
 
-  async listAnomalies(status?: string, severity?: string): Promise<AnomalyEventDTO[]> {
+  async listAnomaliesPage(
+    status?: string,
+    severity?: string,
+    cursor?: string
+  ): Promise<{ items: AnomalyEventDTO[]; nextCursor: string | null }> {
     const params = new URLSearchParams();
     if (status) params.set('status', status);
     if (severity) params.set('severity', severity);
+    if (cursor) params.set('cursor', cursor);
     const qs = params.toString();
     const res = await api.get<AnomalyEventDTO[]>(`/api/anomalies${qs ? `?${qs}` : ''}`);
-    return res.data;
+    const hasNext = res.headers['x-has-next'] === 'true';
+    return { items: res.data, nextCursor: hasNext ? res.headers['x-next-cursor'] ?? null : null };
   },
 
   async runAnomalyDetection(meterId?: string) {